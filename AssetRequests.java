@@ -0,0 +1,33 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.atlassian.annotations.Internal;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Recognises requests for static web resources served by the {@value #ASSETS_SERVLET_PATH} servlet.
+ *
+ * Such resources are never excluded from clickjacking protection, so their security headers don't depend on the
+ * request at all.
+ *
+ * Asset responses still go through the content security policy response wrapper. Its sandbox clause depends on the
+ * content type and on the configurable browser differentiated paths, which may include assets, so skipping the
+ * wrapper could change the headers of an asset.
+ *
+ * @since 9.12
+ */
+@Internal
+public final class AssetRequests {
+    static final String ASSETS_SERVLET_PATH = "/s";
+
+    private AssetRequests() {
+    }
+
+    /**
+     * @return whether the request is served by the assets servlet
+     */
+    public static boolean isAsset(@Nonnull final HttpServletRequest request) {
+        return ASSETS_SERVLET_PATH.equals(request.getServletPath());
+    }
+}
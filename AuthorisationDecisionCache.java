@@ -0,0 +1,242 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.event.ComponentManagerShutdownEvent;
+import com.atlassian.jira.extension.Startable;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.event.events.PluginModuleDisabledEvent;
+import com.atlassian.util.profiling.Metrics;
+import com.atlassian.util.profiling.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.atlassian.jira.user.ApplicationUsers.getKeyFor;
+
+/**
+ * Time bounded cache of the decisions of {@link CacheableAuthorisation}s.
+ *
+ * Decisions are cached separately for each providing module, keyed by the {@link CacheableAuthorisation.CacheKeyDimension}s
+ * and request parameters the module declared. Providers that don't implement {@link CacheableAuthorisation} are
+ * called every time. Either way, the number of calls, cache hits and the time spent in each provider is counted and
+ * exported through JMX, and evaluation time is published as the {@value #EVALUATION_TIMER} timer.
+ *
+ * @since 9.12
+ */
+@Internal
+public class AuthorisationDecisionCache implements AuthorisationDecisionCacheMXBean, Startable {
+    static final String EVALUATION_TIMER = "jira.authorisation.evaluate";
+
+    static final String OBJECT_NAME = "com.atlassian.jira:type=metrics,category00=security,name=authorisation";
+
+    private static final long MAXIMUM_SIZE = 10_000;
+
+    private final Map<String, Provider> providers = new ConcurrentHashMap<>();
+
+    public AuthorisationDecisionCache(final EventPublisher eventPublisher) {
+        eventPublisher.register(this);
+    }
+
+    AuthorisationDecisionCache() {
+    }
+
+    @Override
+    public void start() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(OBJECT_NAME);
+        if (!mBeanServer.isRegistered(objectName)) {
+            mBeanServer.registerMBean(this, objectName);
+        }
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #start()}.
+     */
+    public void stop() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(OBJECT_NAME);
+        if (mBeanServer.isRegistered(objectName)) {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    @EventListener
+    public void onShutdown(final ComponentManagerShutdownEvent event) throws Exception {
+        stop();
+    }
+
+    /**
+     * Same as {@link Authorisation#authoriseForLogin(ApplicationUser, HttpServletRequest)}, cached if the provider allows it.
+     *
+     * @param moduleKey     Complete key of the module providing the authorisation
+     * @param authorisation The authorisation
+     */
+    public Authorisation.Decision authoriseForLogin(@Nonnull final String moduleKey, @Nonnull final Authorisation authorisation,
+                                                    @Nonnull final ApplicationUser user, final HttpServletRequest request) {
+        return get(moduleKey, authorisation, "login", null, user, request,
+                () -> authorisation.authoriseForLogin(user, request));
+    }
+
+    /**
+     * Same as {@link Authorisation#getRequiredRoles(HttpServletRequest)}, cached if the provider allows it. Cached sets
+     * are shared between requests and must not be modified.
+     *
+     * @param moduleKey     Complete key of the module providing the authorisation
+     * @param authorisation The authorisation
+     */
+    public Set<String> getRequiredRoles(@Nonnull final String moduleKey, @Nonnull final Authorisation authorisation,
+                                        final HttpServletRequest request) {
+        return get(moduleKey, authorisation, "roles", null, null, request,
+                () -> authorisation.getRequiredRoles(request));
+    }
+
+    /**
+     * Same as {@link Authorisation#authoriseForRole(ApplicationUser, HttpServletRequest, String)}, cached if the provider allows it.
+     *
+     * @param moduleKey     Complete key of the module providing the authorisation
+     * @param authorisation The authorisation
+     */
+    public Authorisation.Decision authoriseForRole(@Nonnull final String moduleKey, @Nonnull final Authorisation authorisation,
+                                                   @Nullable final ApplicationUser user, final HttpServletRequest request, final String role) {
+        return get(moduleKey, authorisation, "role", role, user, request,
+                () -> authorisation.authoriseForRole(user, request, role));
+    }
+
+    /**
+     * Drops all cached decisions of a provider, e.g. because it was disabled.
+     *
+     * @param moduleKey Complete key of the module providing the authorisation
+     */
+    public void invalidate(@Nonnull final String moduleKey) {
+        final Provider provider = providers.get(moduleKey);
+        if (provider != null && provider.decisions != null) {
+            provider.decisions.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onClearCache(final ClearCacheEvent event) {
+        providers.keySet().forEach(this::invalidate);
+    }
+
+    @EventListener
+    public void onPluginModuleDisabled(final PluginModuleDisabledEvent event) {
+        providers.remove(event.getModule().getCompleteKey());
+    }
+
+    @Override
+    public Map<String, Double> getHitRatios() {
+        final ImmutableMap.Builder<String, Double> hitRatios = ImmutableMap.builder();
+        providers.forEach((moduleKey, provider) -> {
+            final long hits = provider.hits.sum();
+            final long total = hits + provider.evaluations.sum();
+            hitRatios.put(moduleKey, total == 0 ? 0.0 : (double) hits / total);
+        });
+        return hitRatios.build();
+    }
+
+    @Override
+    public Map<String, Long> getEvaluationCounts() {
+        final ImmutableMap.Builder<String, Long> evaluations = ImmutableMap.builder();
+        providers.forEach((moduleKey, provider) -> evaluations.put(moduleKey, provider.evaluations.sum()));
+        return evaluations.build();
+    }
+
+    @Override
+    public Map<String, Long> getEvaluationTimeMillis() {
+        final ImmutableMap.Builder<String, Long> evaluationTime = ImmutableMap.builder();
+        providers.forEach((moduleKey, provider) ->
+                evaluationTime.put(moduleKey, TimeUnit.NANOSECONDS.toMillis(provider.evaluationTimeNanos.sum())));
+        return evaluationTime.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(final String moduleKey, final Authorisation authorisation, final String operation, @Nullable final String role,
+                      @Nullable final ApplicationUser user, final HttpServletRequest request, final Supplier<T> evaluation) {
+        final Provider provider = providers.computeIfAbsent(moduleKey, key -> new Provider(authorisation));
+        if (provider.decisions == null) {
+            return provider.evaluate(moduleKey, evaluation);
+        }
+        final List<Object> key = provider.key(operation, role, user, request);
+        final Object cached = provider.decisions.getIfPresent(key);
+        if (cached != null) {
+            provider.hits.increment();
+            return (T) cached;
+        }
+        final T result = provider.evaluate(moduleKey, evaluation);
+        if (result != null) {
+            provider.decisions.put(key, result);
+        }
+        return result;
+    }
+
+    private static final class Provider {
+        private final CacheableAuthorisation cacheable;
+        private final Cache<List<Object>, Object> decisions;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder evaluationTimeNanos = new LongAdder();
+
+        private Provider(final Authorisation authorisation) {
+            if (authorisation instanceof CacheableAuthorisation) {
+                this.cacheable = (CacheableAuthorisation) authorisation;
+                this.decisions = CacheBuilder.newBuilder()
+                        .maximumSize(MAXIMUM_SIZE)
+                        .expireAfterWrite(cacheable.getCacheDuration().toNanos(), TimeUnit.NANOSECONDS)
+                        .build();
+            } else {
+                this.cacheable = null;
+                this.decisions = null;
+            }
+        }
+
+        private <T> T evaluate(final String moduleKey, final Supplier<T> evaluation) {
+            evaluations.increment();
+            final long start = System.nanoTime();
+            try (Ticker ignored = Metrics.metric(EVALUATION_TIMER).tag("moduleKey", moduleKey).startTimer()) {
+                return evaluation.get();
+            } finally {
+                evaluationTimeNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        private List<Object> key(final String operation, final String role, final ApplicationUser user, final HttpServletRequest request) {
+            final Set<CacheableAuthorisation.CacheKeyDimension> dimensions = cacheable.getCacheKeyDimensions();
+            final List<Object> key = new ArrayList<>(8);
+            key.add(operation);
+            key.add(role);
+            if (dimensions.contains(CacheableAuthorisation.CacheKeyDimension.USER)) {
+                key.add(getKeyFor(user));
+            }
+            if (dimensions.contains(CacheableAuthorisation.CacheKeyDimension.PATH)) {
+                key.add(request.getServletPath());
+                key.add(request.getPathInfo());
+            }
+            if (dimensions.contains(CacheableAuthorisation.CacheKeyDimension.METHOD)) {
+                key.add(request.getMethod());
+            }
+            for (final String parameter : cacheable.getCacheKeyParameters()) {
+                key.add(request.getParameter(parameter));
+            }
+            return key;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.atlassian.jira.security.auth;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link AuthorisationDecisionCache}, all values are keyed by the complete key of the providing module.
+ *
+ * @since 9.12
+ */
+public interface AuthorisationDecisionCacheMXBean {
+    /**
+     * @return share of the calls answered from the cache since startup
+     */
+    Map<String, Double> getHitRatios();
+
+    /**
+     * @return number of calls that reached the provider since startup
+     */
+    Map<String, Long> getEvaluationCounts();
+
+    /**
+     * @return total time spent in the provider since startup, in milliseconds
+     */
+    Map<String, Long> getEvaluationTimeMillis();
+}
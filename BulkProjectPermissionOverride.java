@@ -0,0 +1,71 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.annotations.ExperimentalSpi;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * {@link ProjectPermissionOverride} that can decide many permissions for many projects in a single call.
+ *
+ * Bulk operations, e.g. a bulk move, check several permissions for every selected project. Overrides whose
+ * decision is expensive to compute, e.g. because it requires a remote call, can implement this interface to
+ * evaluate all of them at once. Jira uses {@link #hasPermissions(Set, Collection, ApplicationUser)} when the
+ * override implements it and falls back to
+ * {@link #hasPermission(ProjectPermissionKey, Project, ApplicationUser)} for each pair otherwise, see
+ * {@link #evaluate(ProjectPermissionOverride, Set, Collection, ApplicationUser)}.
+ *
+ * @since 9.12
+ */
+@ExperimentalSpi
+public interface BulkProjectPermissionOverride extends ProjectPermissionOverride {
+    /**
+     * Decides all given permissions for all given projects. The result must be the same as calling
+     * {@link #hasPermission(ProjectPermissionKey, Project, ApplicationUser)} for each pair.
+     *
+     * @param projectPermissionKeys Checked permissions
+     * @param projects              Projects the permissions are checked for
+     * @param applicationUser       User the permissions are checked for, {@code null} for anonymous
+     * @return decisions indexed by project id and permission key; missing decisions are treated as {@link Decision#ABSTAIN}
+     */
+    @Nonnull
+    Table<Long, ProjectPermissionKey, Decision> hasPermissions(@Nonnull Set<ProjectPermissionKey> projectPermissionKeys,
+                                                               @Nonnull Collection<Project> projects,
+                                                               @Nullable ApplicationUser applicationUser);
+
+    /**
+     * Asks the override for all given permissions and projects, in a single call if it supports bulk evaluation.
+     *
+     * @return decision for every project id and permission key
+     */
+    @Nonnull
+    static Table<Long, ProjectPermissionKey, Decision> evaluate(@Nonnull final ProjectPermissionOverride override,
+                                                                @Nonnull final Set<ProjectPermissionKey> projectPermissionKeys,
+                                                                @Nonnull final Collection<Project> projects,
+                                                                @Nullable final ApplicationUser applicationUser) {
+        final Table<Long, ProjectPermissionKey, Decision> decisions = HashBasedTable.create(projects.size(), projectPermissionKeys.size());
+        if (override instanceof BulkProjectPermissionOverride) {
+            decisions.putAll(((BulkProjectPermissionOverride) override).hasPermissions(projectPermissionKeys, projects, applicationUser));
+            for (final Project project : projects) {
+                for (final ProjectPermissionKey projectPermissionKey : projectPermissionKeys) {
+                    if (!decisions.contains(project.getId(), projectPermissionKey)) {
+                        decisions.put(project.getId(), projectPermissionKey, Decision.ABSTAIN);
+                    }
+                }
+            }
+        } else {
+            for (final Project project : projects) {
+                for (final ProjectPermissionKey projectPermissionKey : projectPermissionKeys) {
+                    decisions.put(project.getId(), projectPermissionKey, override.hasPermission(projectPermissionKey, project, applicationUser));
+                }
+            }
+        }
+        return decisions;
+    }
+}
@@ -0,0 +1,61 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.annotations.ExperimentalSpi;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * {@link Authorisation} whose decisions can be reused for a while.
+ *
+ * {@link Authorisation}s are consulted on every request. An implementation whose decisions depend only on a few
+ * properties of the user and the request can declare them here, and Jira then reuses its decisions for requests
+ * that agree on all of them, see {@link AuthorisationDecisionCache}. Anything not declared is assumed not to affect
+ * the decision. Decisions are never reused after {@link #getCacheDuration()}, and calls that throw are never cached.
+ *
+ * @since 9.12
+ */
+@ExperimentalSpi
+public interface CacheableAuthorisation extends Authorisation {
+    /**
+     * Properties of the user and the request a decision can depend on.
+     */
+    enum CacheKeyDimension {
+        /**
+         * Key of the authenticated user, {@code null} for anonymous
+         */
+        USER,
+        /**
+         * Servlet path and path info of the request
+         */
+        PATH,
+        /**
+         * HTTP method of the request
+         */
+        METHOD
+    }
+
+    /**
+     * @return properties of the user and the request the decisions depend on
+     */
+    @Nonnull
+    Set<CacheKeyDimension> getCacheKeyDimensions();
+
+    /**
+     * @return names of the request parameters the decisions depend on
+     */
+    @Nonnull
+    default Set<String> getCacheKeyParameters() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return how long a decision can be reused
+     */
+    @Nonnull
+    default Duration getCacheDuration() {
+        return Duration.ofMinutes(1);
+    }
+}
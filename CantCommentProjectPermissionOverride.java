@@ -1,15 +1,27 @@
 package com.atlassian.jira.dev.reference.plugin.security;
 
 import com.atlassian.jira.project.Project;
+import com.atlassian.jira.security.plugin.ExplainableProjectPermissionOverride;
 import com.atlassian.jira.security.plugin.ProjectPermissionKey;
-import com.atlassian.jira.security.plugin.ProjectPermissionOverride;
+import com.atlassian.jira.security.plugin.ScopedProjectPermissionOverride;
 import com.atlassian.jira.user.ApplicationUser;
+import com.google.common.collect.ImmutableSet;
 
 import javax.annotation.Nullable;
+import java.util.Set;
 
 import static com.atlassian.jira.permission.ProjectPermissions.ADD_COMMENTS;
 
-public class CantCommentProjectPermissionOverride implements ProjectPermissionOverride {
+public class CantCommentProjectPermissionOverride implements ExplainableProjectPermissionOverride, ScopedProjectPermissionOverride {
+    private static final Set<ProjectPermissionKey> AFFECTED_PERMISSION_KEYS = ImmutableSet.of(ADD_COMMENTS);
+    private static final Reason HAS_PERMISSIONS = new Reason("reference-plugin", "brad.does.have.permissions");
+    private static final Reason DOESNT_HAVE_PERMISSIONS = new Reason("reference-plugin", "brad.doesnt.have.permissions");
+
+    @Override
+    public Set<ProjectPermissionKey> getAffectedPermissionKeys() {
+        return AFFECTED_PERMISSION_KEYS;
+    }
+
     @Override
     public Decision hasPermission(final ProjectPermissionKey projectPermissionKey, final Project project, @Nullable final ApplicationUser applicationUser) {
 
@@ -25,8 +37,11 @@ public class CantCommentProjectPermissionOverride implements ProjectPermissionOv
 
     @Override
     public Reason getReason(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
-        return hasPermission(projectPermissionKey, project, applicationUser) == Decision.ABSTAIN ?
-                new Reason("reference-plugin", "brad.does.have.permissions") :
-                new Reason("reference-plugin", "brad.doesnt.have.permissions");
+        return explain(hasPermission(projectPermissionKey, project, applicationUser), projectPermissionKey, project, applicationUser);
+    }
+
+    @Override
+    public Reason explain(final Decision decision, final ProjectPermissionKey projectPermissionKey, final Project project, @Nullable final ApplicationUser applicationUser) {
+        return decision == Decision.ABSTAIN ? HAS_PERMISSIONS : DOESNT_HAVE_PERMISSIONS;
     }
 }
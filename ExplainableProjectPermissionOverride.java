@@ -0,0 +1,34 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.annotations.ExperimentalSpi;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ProjectPermissionOverride} that can explain a decision it has already made, without making it again.
+ *
+ * {@link #getReason(ProjectPermissionKey, Project, ApplicationUser)} has to evaluate the decision before it can
+ * explain it, so a permission explanation view that first asks for the decision and then for the reason evaluates
+ * every override twice. Jira asks overrides implementing this interface only for the decision while checking
+ * permissions, and passes that decision to {@link #explain(Decision, ProjectPermissionKey, Project, ApplicationUser)}
+ * when the reason is actually rendered.
+ *
+ * Implementations are encouraged to return shared {@link Reason} instances rather than creating a new one per call.
+ *
+ * @since 9.12
+ */
+@ExperimentalSpi
+public interface ExplainableProjectPermissionOverride extends ProjectPermissionOverride {
+    /**
+     * @param decision             Decision this override returned for the same arguments
+     * @param projectPermissionKey Checked permission
+     * @param project              Project the permission was checked for
+     * @param applicationUser      User the permission was checked for, {@code null} for anonymous
+     * @return reason of the decision
+     */
+    @Nonnull
+    Reason explain(@Nonnull Decision decision, ProjectPermissionKey projectPermissionKey, Project project, @Nullable ApplicationUser applicationUser);
+}
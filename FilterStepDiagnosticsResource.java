@@ -0,0 +1,107 @@
+package com.atlassian.jira.rest.v2.diagnostics;
+
+import com.atlassian.jira.permission.GlobalPermissionKey;
+import com.atlassian.jira.security.GlobalPermissionManager;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.web.filters.steps.FilterStepProfiler;
+import com.atlassian.sal.api.websudo.WebSudoRequired;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Exposes the latency and allocation of the filter chain steps recorded by {@link FilterStepProfiler}.
+ * Available to system administrators only.
+ *
+ * @since 9.12
+ */
+@Path("diagnostics/filter-steps")
+@Produces(MediaType.APPLICATION_JSON)
+@WebSudoRequired
+public class FilterStepDiagnosticsResource {
+    private final FilterStepProfiler profiler;
+    private final GlobalPermissionManager globalPermissionManager;
+    private final JiraAuthenticationContext authenticationContext;
+
+    public FilterStepDiagnosticsResource(final FilterStepProfiler profiler, final GlobalPermissionManager globalPermissionManager,
+                                         final JiraAuthenticationContext authenticationContext) {
+        this.profiler = profiler;
+        this.globalPermissionManager = globalPermissionManager;
+        this.authenticationContext = authenticationContext;
+    }
+
+    /**
+     * @return statistics of every step and URL pattern recorded since startup or the last reset
+     */
+    @GET
+    public Response getStatistics() {
+        if (!isSystemAdmin()) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        return Response.ok(new FilterStepsBean(profiler.isEnabled(), FilterStepProfiler.getLatencyBucketsMicros(),
+                profiler.getStatistics().stream().map(StepBean::new).collect(toList()))).build();
+    }
+
+    /**
+     * Forgets all recorded statistics.
+     */
+    @DELETE
+    public Response reset() {
+        if (!isSystemAdmin()) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        profiler.reset();
+        return Response.noContent().build();
+    }
+
+    private boolean isSystemAdmin() {
+        return globalPermissionManager.hasPermission(GlobalPermissionKey.SYSTEM_ADMIN, authenticationContext.getLoggedInUser());
+    }
+
+    public static class FilterStepsBean {
+        @JsonProperty
+        private final boolean enabled;
+        @JsonProperty
+        private final List<Long> latencyBucketsMicros;
+        @JsonProperty
+        private final List<StepBean> steps;
+
+        FilterStepsBean(final boolean enabled, final List<Long> latencyBucketsMicros, final List<StepBean> steps) {
+            this.enabled = enabled;
+            this.latencyBucketsMicros = latencyBucketsMicros;
+            this.steps = steps;
+        }
+    }
+
+    public static class StepBean {
+        @JsonProperty
+        private final String step;
+        @JsonProperty
+        private final String urlPattern;
+        @JsonProperty
+        private final long count;
+        @JsonProperty
+        private final long totalTimeMicros;
+        @JsonProperty
+        private final long allocatedBytes;
+        @JsonProperty
+        private final List<Long> latencyHistogram;
+
+        StepBean(final FilterStepProfiler.StepStatistics statistics) {
+            this.step = statistics.getStep();
+            this.urlPattern = statistics.getUrlPattern();
+            this.count = statistics.getCount();
+            this.totalTimeMicros = statistics.getTotalTimeMicros();
+            this.allocatedBytes = statistics.getAllocatedBytes();
+            this.latencyHistogram = statistics.getLatencyHistogram();
+        }
+    }
+}
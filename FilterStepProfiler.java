@@ -0,0 +1,389 @@
+package com.atlassian.jira.web.filters.steps;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
+import com.atlassian.jira.event.ComponentManagerShutdownEvent;
+import com.atlassian.jira.extension.Startable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Latency and allocation of the steps of the filter chain, recorded per step and URL pattern. Steps are profiled by
+ * wrapping them in a {@link ProfilingFilterStep}; filters that aren't steps can time themselves with
+ * {@link #start(String, HttpServletRequest)}.
+ *
+ * The URL pattern is the first segment of the servlet path if it is one of Jira's well known paths, e.g.
+ * {@code /rest}, {@code /s} or {@code /secure}, and {@value #OTHER_URL_PATTERN} otherwise. The servlet path of an
+ * unmapped URL is whatever the client sent, so the number of recorded series must not depend on it. Allocation is
+ * measured with the per-thread allocation counter of the JVM where it is available, and doesn't include the
+ * allocation of the sample itself.
+ *
+ * Profiling costs a couple of clock reads per step, so it is off unless {@value #ENABLED_PROPERTY} is set. The
+ * statistics are exported through JMX and the filter steps diagnostics REST resource.
+ *
+ * @since 9.12
+ */
+@Internal
+public class FilterStepProfiler implements FilterStepProfilerMXBean, Startable {
+    private static final Logger log = LoggerFactory.getLogger(FilterStepProfiler.class);
+
+    static final String ENABLED_PROPERTY = "jira.filter.steps.profiling";
+
+    static final String OBJECT_NAME = "com.atlassian.jira:type=metrics,category00=web,name=filterSteps";
+
+    /**
+     * Upper bounds of the latency histogram buckets, the last bucket holds everything slower.
+     */
+    private static final long[] LATENCY_BUCKETS_MICROS = {10, 50, 100, 500, 1000, 5000, 10000, 50000};
+
+    static final String OTHER_URL_PATTERN = "other";
+
+    /**
+     * First segments of the servlet paths recorded as URL patterns of their own.
+     */
+    private static final Set<String> KNOWN_URL_PATTERNS = ImmutableSet.of("/", "/s", "/rest", "/secure", "/browse",
+            "/projects", "/issues", "/plugins", "/servicedesk", "/download", "/images", "/sr", "/si", "/login.jsp",
+            "/logout", "/jira", "/default.jsp");
+
+    private static final Sample NOOP = () -> {
+    };
+
+    private final boolean enabled;
+    private final com.sun.management.ThreadMXBean allocationCounter;
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    private final Function<SeriesKey, Series> newSeries = Series::new;
+
+    public FilterStepProfiler(final EventPublisher eventPublisher) {
+        this(JiraSystemProperties.getInstance().getBoolean(ENABLED_PROPERTY));
+        eventPublisher.register(this);
+    }
+
+    FilterStepProfiler(final boolean enabled) {
+        this.enabled = enabled;
+        this.allocationCounter = enabled ? allocationCounter() : null;
+    }
+
+    @Override
+    public void start() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(OBJECT_NAME);
+        if (!mBeanServer.isRegistered(objectName)) {
+            mBeanServer.registerMBean(this, objectName);
+        }
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #start()}.
+     */
+    public void stop() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(OBJECT_NAME);
+        if (mBeanServer.isRegistered(objectName)) {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    @EventListener
+    public void onShutdown(final ComponentManagerShutdownEvent event) throws Exception {
+        stop();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts measuring a step for the request. The returned sample must be closed in the same thread once the step
+     * is done, usually with try-with-resources.
+     *
+     * @param step    Name of the step
+     * @param request The request the step runs for
+     * @return the running sample
+     */
+    @Nonnull
+    public Sample start(@Nonnull final String step, @Nonnull final HttpServletRequest request) {
+        if (!enabled) {
+            return NOOP;
+        }
+        // the sample is allocated before the counters are read, so that it doesn't count as allocated by the step
+        final RunningSample sample = new RunningSample(step, urlPattern(request.getServletPath()), Thread.currentThread().getId());
+        sample.start();
+        return sample;
+    }
+
+    /**
+     * Forgets all recorded samples.
+     */
+    public void reset() {
+        series.clear();
+    }
+
+    /**
+     * @return statistics of every step and URL pattern recorded so far, ordered by step and URL pattern
+     */
+    @Nonnull
+    public List<StepStatistics> getStatistics() {
+        return series.values().stream()
+                .map(Series::toStatistics)
+                .sorted(Comparator.comparing(StepStatistics::getStep).thenComparing(StepStatistics::getUrlPattern))
+                .collect(toList());
+    }
+
+    /**
+     * @return upper bounds of the buckets of {@link StepStatistics#getLatencyHistogram()}, in microseconds; the
+     * histogram has one more bucket for slower samples
+     */
+    @Nonnull
+    public static List<Long> getLatencyBucketsMicros() {
+        final ImmutableList.Builder<Long> buckets = ImmutableList.builder();
+        for (final long bucket : LATENCY_BUCKETS_MICROS) {
+            buckets.add(bucket);
+        }
+        return buckets.build();
+    }
+
+    @Override
+    public Map<String, Long> getInvocationCounts() {
+        return collect(StepStatistics::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getTotalTimeMicros() {
+        return collect(StepStatistics::getTotalTimeMicros);
+    }
+
+    @Override
+    public Map<String, Long> getAllocatedBytes() {
+        return collect(StepStatistics::getAllocatedBytes);
+    }
+
+    @Override
+    public Map<String, List<Long>> getLatencyHistograms() {
+        return collect(StepStatistics::getLatencyHistogram);
+    }
+
+    void record(final String step, final String urlPattern, final long nanos, final long bytes) {
+        series.computeIfAbsent(new SeriesKey(step, urlPattern), newSeries).record(nanos, bytes);
+    }
+
+    private <T> Map<String, T> collect(final Function<StepStatistics, T> value) {
+        final ImmutableMap.Builder<String, T> values = ImmutableMap.builder();
+        for (final StepStatistics statistics : getStatistics()) {
+            values.put(statistics.getStep() + " " + statistics.getUrlPattern(), value.apply(statistics));
+        }
+        return values.build();
+    }
+
+    private long allocatedBytes(final long threadId) {
+        return allocationCounter == null ? -1 : allocationCounter.getThreadAllocatedBytes(threadId);
+    }
+
+    static String urlPattern(final String servletPath) {
+        if (servletPath == null || servletPath.isEmpty()) {
+            return "/";
+        }
+        final int end = servletPath.indexOf('/', 1);
+        final String firstSegment = end < 0 ? servletPath : servletPath.substring(0, end);
+        return KNOWN_URL_PATTERNS.contains(firstSegment) ? firstSegment : OTHER_URL_PATTERN;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                    return counter;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            log.debug("Thread allocation counter isn't available", e);
+        }
+        log.info("Thread allocation counter isn't available, filter step allocation won't be recorded");
+        return null;
+    }
+
+    /**
+     * Measurement of a single step run.
+     */
+    @FunctionalInterface
+    public interface Sample extends AutoCloseable {
+        /**
+         * Records the sample.
+         */
+        @Override
+        void close();
+    }
+
+    private final class RunningSample implements Sample {
+        private final String step;
+        private final String urlPattern;
+        private final long threadId;
+        private long startBytes;
+        private long start;
+
+        private RunningSample(final String step, final String urlPattern, final long threadId) {
+            this.step = step;
+            this.urlPattern = urlPattern;
+            this.threadId = threadId;
+        }
+
+        private void start() {
+            startBytes = allocatedBytes(threadId);
+            start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            final long nanos = System.nanoTime() - start;
+            final long bytes = startBytes < 0 ? -1 : allocatedBytes(threadId) - startBytes;
+            record(step, urlPattern, nanos, bytes);
+        }
+    }
+
+    private static final class SeriesKey {
+        private final String step;
+        private final String urlPattern;
+
+        private SeriesKey(final String step, final String urlPattern) {
+            this.step = step;
+            this.urlPattern = urlPattern;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final SeriesKey that = (SeriesKey) o;
+            return step.equals(that.step) && urlPattern.equals(that.urlPattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(step, urlPattern);
+        }
+    }
+
+    private static final class Series {
+        private final SeriesKey key;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS_MICROS.length + 1];
+
+        private Series(final SeriesKey key) {
+            this.key = key;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LongAdder();
+            }
+        }
+
+        private void record(final long nanos, final long bytes) {
+            count.increment();
+            totalNanos.add(nanos);
+            if (bytes > 0) {
+                allocatedBytes.add(bytes);
+            }
+            final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MICROS.length && micros > LATENCY_BUCKETS_MICROS[bucket]) {
+                bucket++;
+            }
+            latencies[bucket].increment();
+        }
+
+        private StepStatistics toStatistics() {
+            final ImmutableList.Builder<Long> histogram = ImmutableList.builder();
+            for (final LongAdder latency : latencies) {
+                histogram.add(latency.sum());
+            }
+            return new StepStatistics(key.step, key.urlPattern, count.sum(), TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()),
+                    allocatedBytes.sum(), histogram.build());
+        }
+    }
+
+    /**
+     * Point in time statistics of a single step and URL pattern.
+     */
+    public static class StepStatistics {
+        private final String step;
+        private final String urlPattern;
+        private final long count;
+        private final long totalTimeMicros;
+        private final long allocatedBytes;
+        private final List<Long> latencyHistogram;
+
+        StepStatistics(final String step, final String urlPattern, final long count, final long totalTimeMicros,
+                       final long allocatedBytes, final List<Long> latencyHistogram) {
+            this.step = step;
+            this.urlPattern = urlPattern;
+            this.count = count;
+            this.totalTimeMicros = totalTimeMicros;
+            this.allocatedBytes = allocatedBytes;
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public String getUrlPattern() {
+            return urlPattern;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalTimeMicros() {
+            return totalTimeMicros;
+        }
+
+        /**
+         * @return bytes allocated by the step in total, 0 if allocation can't be measured
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return number of samples in each latency bucket, see {@link #getLatencyBucketsMicros()}
+         */
+        public List<Long> getLatencyHistogram() {
+            return latencyHistogram;
+        }
+
+        @Override
+        public String toString() {
+            return step + " " + urlPattern + ": count=" + count + ", totalTimeMicros=" + totalTimeMicros
+                    + ", allocatedBytes=" + allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.atlassian.jira.web.filters.steps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of {@link FilterStepProfiler}, all values are keyed by step name and URL pattern.
+ *
+ * @since 9.12
+ */
+public interface FilterStepProfilerMXBean {
+    /**
+     * @return number of recorded runs of each step
+     */
+    Map<String, Long> getInvocationCounts();
+
+    /**
+     * @return total time spent in each step, in microseconds
+     */
+    Map<String, Long> getTotalTimeMicros();
+
+    /**
+     * @return total bytes allocated by each step
+     */
+    Map<String, Long> getAllocatedBytes();
+
+    /**
+     * @return number of runs of each step in each latency bucket
+     */
+    Map<String, List<Long>> getLatencyHistograms();
+}
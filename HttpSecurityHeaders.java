@@ -0,0 +1,140 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.atlassian.annotations.Internal;
+import com.google.common.net.HttpHeaders;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Security headers {@link HttpSecurityStep} sets on responses, rendered once for a {@link HttpSecuritySettings}.
+ *
+ * There are two variants: one for paths excluded from clickjacking protection, which doesn't include the
+ * {@code X-Frame-Options} and {@code Content-Security-Policy} headers, and one for all other paths. Both are
+ * rendered when the settings are loaded, so applying them is just setting a fixed list of headers.
+ *
+ * @since 9.12
+ */
+@Internal
+public final class HttpSecurityHeaders {
+    static final long DEFAULT_STRICT_TRANSPORT_SECURITY_MAX_AGE = 31536000L;
+
+    /**
+     * Headers used when the settings aren't available, all of them with their default values.
+     */
+    public static final HttpSecurityHeaders DEFAULT = HttpSecuritySettings.builder().build(0).getHeaders();
+
+    private final String[] headers;
+    private final String[] excludedPathHeaders;
+
+    private HttpSecurityHeaders(final Map<String, String> headers, final Map<String, String> excludedPathHeaders) {
+        this.headers = flatten(headers);
+        this.excludedPathHeaders = flatten(excludedPathHeaders);
+    }
+
+    /**
+     * @return headers for the given settings
+     */
+    @Nonnull
+    public static HttpSecurityHeaders of(@Nonnull final HttpSecuritySettings settings) {
+        final Map<String, String> excludedPathHeaders = new LinkedHashMap<>();
+        excludedPathHeaders.put(HttpHeaders.X_CONTENT_TYPE_OPTIONS, "nosniff");
+        excludedPathHeaders.put(HttpHeaders.X_XSS_PROTECTION, "1; mode=block");
+        excludedPathHeaders.put(HttpHeaders.REFERRER_POLICY, "strict-origin-when-cross-origin");
+        if (!settings.isStrictTransportSecurityDisabled()) {
+            excludedPathHeaders.put(HttpHeaders.STRICT_TRANSPORT_SECURITY, strictTransportSecurity(settings));
+        }
+
+        final Map<String, String> headers = new LinkedHashMap<>(excludedPathHeaders);
+        if (!settings.isClickjackingProtectionDisabled()) {
+            headers.put(HttpHeaders.X_FRAME_OPTIONS, "SAMEORIGIN");
+            headers.put(HttpHeaders.CONTENT_SECURITY_POLICY, "frame-ancestors 'self'");
+        }
+        return new HttpSecurityHeaders(headers, excludedPathHeaders);
+    }
+
+    /**
+     * Sets all headers of the variant on the response.
+     *
+     * @param response     The response
+     * @param excludedPath Whether the request path is excluded from clickjacking protection
+     */
+    public void apply(@Nonnull final HttpServletResponse response, final boolean excludedPath) {
+        final String[] variant = excludedPath ? excludedPathHeaders : headers;
+        for (int i = 0; i < variant.length; i += 2) {
+            response.setHeader(variant[i], variant[i + 1]);
+        }
+    }
+
+    /**
+     * Sets the security headers of the request on the response.
+     *
+     * Assets are never excluded from clickjacking protection, so for them the request path isn't even built and
+     * the normal variant is set right away.
+     *
+     * @param settings Current settings, {@code null} if they aren't available
+     * @param request  The request
+     * @param response The response
+     */
+    public static void applyTo(@Nullable final HttpSecuritySettings settings, @Nonnull final HttpServletRequest request,
+                               @Nonnull final HttpServletResponse response) {
+        if (settings == null) {
+            DEFAULT.apply(response, false);
+        } else if (AssetRequests.isAsset(request)) {
+            settings.getHeaders().apply(response, false);
+        } else {
+            final String pathInfo = request.getPathInfo();
+            final String path = pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+            settings.getHeaders().apply(response, settings.isExcluded(path));
+        }
+    }
+
+    /**
+     * @param excludedPath Whether the request path is excluded from clickjacking protection
+     * @return names and values of the headers of the variant, in the order they are set
+     */
+    @Nonnull
+    public List<Map.Entry<String, String>> getHeaders(final boolean excludedPath) {
+        final String[] variant = excludedPath ? excludedPathHeaders : headers;
+        final List<Map.Entry<String, String>> entries = new ArrayList<>(variant.length / 2);
+        for (int i = 0; i < variant.length; i += 2) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(variant[i], variant[i + 1]));
+        }
+        return entries;
+    }
+
+    private static String strictTransportSecurity(final HttpSecuritySettings settings) {
+        final Long maxAge = settings.getStrictTransportSecurityMaxAge();
+        final StringBuilder value = new StringBuilder("max-age=")
+                .append(maxAge == null ? DEFAULT_STRICT_TRANSPORT_SECURITY_MAX_AGE : maxAge);
+        if (settings.isStrictTransportSecurityPreloadEnabled()) {
+            // preloading requires includeSubDomains
+            value.append("; includeSubDomains; preload");
+        } else if (settings.isStrictTransportSecurityIncludeSubDomainsEnabled()) {
+            value.append("; includeSubDomains");
+        }
+        if (isNotBlank(settings.getStrictTransportSecurityAdditionalParams())) {
+            value.append("; ").append(settings.getStrictTransportSecurityAdditionalParams());
+        }
+        return value.toString();
+    }
+
+    private static String[] flatten(final Map<String, String> headers) {
+        final String[] flattened = new String[headers.size() * 2];
+        int i = 0;
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            flattened[i++] = header.getKey();
+            flattened[i++] = header.getValue();
+        }
+        return flattened;
+    }
+}
@@ -0,0 +1,154 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.atlassian.annotations.Internal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable snapshot of everything {@link HttpSecurityConfig} reads from {@code JiraProperties} and the
+ * {@link PathExclusionModuleDescriptor} modules, see {@link HttpSecuritySettingsHolder}.
+ *
+ * The security headers are rendered once per snapshot, see {@link #getHeaders()}. Each snapshot has a version,
+ * greater than the version of every snapshot taken before it, so that values derived from the settings can tell
+ * whether they are still up to date.
+ *
+ * @since 9.12
+ */
+@Internal
+public final class HttpSecuritySettings {
+    private final long version;
+    private final boolean clickjackingProtectionDisabled;
+    private final PathPrefixMatcher excludedPaths;
+    private final boolean strictTransportSecurityDisabled;
+    private final Long strictTransportSecurityMaxAge;
+    private final boolean strictTransportSecurityIncludeSubDomainsEnabled;
+    private final boolean strictTransportSecurityPreloadEnabled;
+    private final String strictTransportSecurityAdditionalParams;
+    private final HttpSecurityHeaders headers;
+
+    private HttpSecuritySettings(final Builder builder, final long version) {
+        this.version = version;
+        this.clickjackingProtectionDisabled = builder.clickjackingProtectionDisabled;
+        this.excludedPaths = builder.excludedPaths;
+        this.strictTransportSecurityDisabled = builder.strictTransportSecurityDisabled;
+        this.strictTransportSecurityMaxAge = builder.strictTransportSecurityMaxAge;
+        this.strictTransportSecurityIncludeSubDomainsEnabled = builder.strictTransportSecurityIncludeSubDomainsEnabled;
+        this.strictTransportSecurityPreloadEnabled = builder.strictTransportSecurityPreloadEnabled;
+        this.strictTransportSecurityAdditionalParams = builder.strictTransportSecurityAdditionalParams;
+        this.headers = HttpSecurityHeaders.of(this);
+    }
+
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isClickjackingProtectionDisabled() {
+        return clickjackingProtectionDisabled;
+    }
+
+    /**
+     * Same as {@link HttpSecurityConfig#isExcluded(String)}.
+     */
+    public boolean isExcluded(@Nullable final String path) {
+        return excludedPaths.matches(path);
+    }
+
+    @Nonnull
+    public PathPrefixMatcher getExcludedPaths() {
+        return excludedPaths;
+    }
+
+    public boolean isStrictTransportSecurityDisabled() {
+        return strictTransportSecurityDisabled;
+    }
+
+    /**
+     * @return max age of the {@code Strict-Transport-Security} header, {@code null} for the default
+     */
+    @Nullable
+    public Long getStrictTransportSecurityMaxAge() {
+        return strictTransportSecurityMaxAge;
+    }
+
+    public boolean isStrictTransportSecurityIncludeSubDomainsEnabled() {
+        return strictTransportSecurityIncludeSubDomainsEnabled;
+    }
+
+    public boolean isStrictTransportSecurityPreloadEnabled() {
+        return strictTransportSecurityPreloadEnabled;
+    }
+
+    @Nullable
+    public String getStrictTransportSecurityAdditionalParams() {
+        return strictTransportSecurityAdditionalParams;
+    }
+
+    /**
+     * @return security headers rendered for these settings
+     */
+    @Nonnull
+    public HttpSecurityHeaders getHeaders() {
+        return headers;
+    }
+
+    public static final class Builder {
+        private boolean clickjackingProtectionDisabled;
+        private PathPrefixMatcher excludedPaths = PathPrefixMatcher.empty();
+        private boolean strictTransportSecurityDisabled;
+        private Long strictTransportSecurityMaxAge;
+        private boolean strictTransportSecurityIncludeSubDomainsEnabled;
+        private boolean strictTransportSecurityPreloadEnabled;
+        private String strictTransportSecurityAdditionalParams;
+
+        private Builder() {
+        }
+
+        public Builder clickjackingProtectionDisabled(final boolean clickjackingProtectionDisabled) {
+            this.clickjackingProtectionDisabled = clickjackingProtectionDisabled;
+            return this;
+        }
+
+        public Builder excludedPaths(@Nonnull final PathPrefixMatcher excludedPaths) {
+            this.excludedPaths = excludedPaths;
+            return this;
+        }
+
+        public Builder strictTransportSecurityDisabled(final boolean strictTransportSecurityDisabled) {
+            this.strictTransportSecurityDisabled = strictTransportSecurityDisabled;
+            return this;
+        }
+
+        public Builder strictTransportSecurityMaxAge(@Nullable final Long strictTransportSecurityMaxAge) {
+            this.strictTransportSecurityMaxAge = strictTransportSecurityMaxAge;
+            return this;
+        }
+
+        public Builder strictTransportSecurityIncludeSubDomainsEnabled(final boolean strictTransportSecurityIncludeSubDomainsEnabled) {
+            this.strictTransportSecurityIncludeSubDomainsEnabled = strictTransportSecurityIncludeSubDomainsEnabled;
+            return this;
+        }
+
+        public Builder strictTransportSecurityPreloadEnabled(final boolean strictTransportSecurityPreloadEnabled) {
+            this.strictTransportSecurityPreloadEnabled = strictTransportSecurityPreloadEnabled;
+            return this;
+        }
+
+        public Builder strictTransportSecurityAdditionalParams(@Nullable final String strictTransportSecurityAdditionalParams) {
+            this.strictTransportSecurityAdditionalParams = strictTransportSecurityAdditionalParams;
+            return this;
+        }
+
+        /**
+         * @param version Version of the snapshot, see {@link HttpSecuritySettings#getVersion()}
+         */
+        public HttpSecuritySettings build(final long version) {
+            return new HttpSecuritySettings(this, version);
+        }
+    }
+}
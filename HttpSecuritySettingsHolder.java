@@ -0,0 +1,100 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.plugin.ModuleDescriptor;
+import com.atlassian.plugin.event.events.PluginModuleDisabledEvent;
+import com.atlassian.plugin.event.events.PluginModuleEnabledEvent;
+
+import javax.annotation.Nonnull;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the current {@link HttpSecuritySettings}, so that {@link HttpSecurityConfig} doesn't enumerate the
+ * {@link PathExclusionModuleDescriptor} modules and read {@code JiraProperties} on every request.
+ *
+ * The settings are loaded once, on first use, and loaded again, as a whole, when a path exclusion module is enabled or
+ * disabled, when caches are cleared, or when {@link #refresh()} is called.
+ *
+ * The clickjacking protection and Strict-Transport-Security settings come from {@code JiraProperties}, which publish
+ * no event when they change. A changed property takes effect only after a restart, unless whoever changes it calls
+ * {@link #refresh()} or clears the caches.
+ * A new snapshot replaces the old one atomically, so once loaded {@link #get()} never locks or allocates and never
+ * sees a partially updated configuration.
+ *
+ * @since 9.12
+ */
+@Internal
+public class HttpSecuritySettingsHolder {
+    private final Consumer<HttpSecuritySettings.Builder> loader;
+    private final Object lock = new Object();
+    private volatile HttpSecuritySettings settings;
+
+    /**
+     * @param loader Reads the current configuration into a builder
+     */
+    public HttpSecuritySettingsHolder(final EventPublisher eventPublisher, final Consumer<HttpSecuritySettings.Builder> loader) {
+        this(loader);
+        eventPublisher.register(this);
+    }
+
+    HttpSecuritySettingsHolder(final Consumer<HttpSecuritySettings.Builder> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return current settings
+     */
+    @Nonnull
+    public HttpSecuritySettings get() {
+        final HttpSecuritySettings current = settings;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lock) {
+            // concurrent first calls load only once
+            final HttpSecuritySettings loaded = settings;
+            return loaded != null ? loaded : refresh();
+        }
+    }
+
+    /**
+     * Loads the settings again, e.g. after a property they depend on was changed.
+     *
+     * @return the new settings
+     */
+    @Nonnull
+    public HttpSecuritySettings refresh() {
+        synchronized (lock) {
+            final HttpSecuritySettings previous = settings;
+            final HttpSecuritySettings.Builder builder = HttpSecuritySettings.builder();
+            loader.accept(builder);
+            final HttpSecuritySettings current = builder.build(previous == null ? 1 : previous.getVersion() + 1);
+            settings = current;
+            return current;
+        }
+    }
+
+    @EventListener
+    public void onClearCache(final ClearCacheEvent event) {
+        refresh();
+    }
+
+    @EventListener
+    public void onPluginModuleEnabled(final PluginModuleEnabledEvent event) {
+        refreshIfPathExclusion(event.getModule());
+    }
+
+    @EventListener
+    public void onPluginModuleDisabled(final PluginModuleDisabledEvent event) {
+        refreshIfPathExclusion(event.getModule());
+    }
+
+    private void refreshIfPathExclusion(final ModuleDescriptor<?> moduleDescriptor) {
+        if (moduleDescriptor instanceof PathExclusionModuleDescriptor) {
+            refresh();
+        }
+    }
+}
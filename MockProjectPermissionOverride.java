@@ -0,0 +1,70 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+
+/**
+ * Override that returns a fixed decision for some permissions and abstains for all others.
+ *
+ * @since 9.12
+ */
+public class MockProjectPermissionOverride implements ProjectPermissionOverride {
+    private final Decision decision;
+    private final Set<ProjectPermissionKey> permissionKeys;
+
+    public MockProjectPermissionOverride(final Decision decision, final ProjectPermissionKey... permissionKeys) {
+        this.decision = decision;
+        this.permissionKeys = ImmutableSet.copyOf(permissionKeys);
+    }
+
+    /**
+     * @return override that denies the given permissions, like the {@code CantEditIssueProjectPermissionOverride} of
+     * the reference plugin does for {@code EDIT_ISSUES}
+     */
+    public static MockProjectPermissionOverride denying(final ProjectPermissionKey... permissionKeys) {
+        return new MockProjectPermissionOverride(Decision.DENY, permissionKeys);
+    }
+
+    /**
+     * @return override that abstains for every permission
+     */
+    public static MockProjectPermissionOverride abstaining() {
+        return new MockProjectPermissionOverride(Decision.ABSTAIN);
+    }
+
+    /**
+     * @return override that denies the given permissions and declares them as the only ones it affects
+     */
+    public static Scoped scopedDenying(final ProjectPermissionKey... permissionKeys) {
+        return new Scoped(Decision.DENY, permissionKeys);
+    }
+
+    @Override
+    public Decision hasPermission(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+        return permissionKeys.contains(projectPermissionKey) ? decision : Decision.ABSTAIN;
+    }
+
+    @Override
+    public Reason getReason(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+        return null;
+    }
+
+    public static class Scoped extends MockProjectPermissionOverride implements ScopedProjectPermissionOverride {
+        private final Set<ProjectPermissionKey> affectedPermissionKeys;
+
+        public Scoped(final Decision decision, final ProjectPermissionKey... affectedPermissionKeys) {
+            super(decision, affectedPermissionKeys);
+            this.affectedPermissionKeys = ImmutableSet.copyOf(affectedPermissionKeys);
+        }
+
+        @Nonnull
+        @Override
+        public Set<ProjectPermissionKey> getAffectedPermissionKeys() {
+            return affectedPermissionKeys;
+        }
+    }
+}
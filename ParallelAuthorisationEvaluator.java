@@ -0,0 +1,209 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
+import com.atlassian.jira.event.ComponentManagerShutdownEvent;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.sal.api.executor.ThreadLocalDelegateExecutorFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+
+/**
+ * Asks several {@link Authorisation}s at the same time instead of one after the other.
+ *
+ * Providers such as SSO or LDAP backed ones spend most of their time waiting on I/O, and asking them serially adds
+ * up their latencies. Here all providers are started at once on a pool with a bounded number of threads and a bounded
+ * queue; when both are full, providers run on the request thread. Their decisions are then read in the original
+ * order, so precedence is the same as in the serial evaluation: the first provider that doesn't
+ * {@link Authorisation.Decision#ABSTAIN abstain} wins. Providers behind it are interrupted, and those that haven't
+ * started yet are skipped.
+ *
+ * A provider that throws abstains, as in the serial evaluation. All providers share a single deadline per evaluation,
+ * and a provider that hasn't decided by then while no provider ahead of it has decided
+ * {@link Authorisation.Decision#DENIED denies} access, so that a slow provider can't let a provider of lower
+ * precedence grant access it would have denied.
+ *
+ * Providers run with the thread local context of the request thread, e.g. the logged in user, see
+ * {@link ThreadLocalDelegateExecutorFactory}. They get a {@link ScopedRequest view} of the request that forwards to it
+ * until the evaluation ends, as they may still be running after the request completed.
+ *
+ * The pool is shut down with the component manager. Evaluations after that, or while the pool rejects providers, ask
+ * the providers serially.
+ *
+ * Parallel evaluation is used only when {@value #ENABLED_PROPERTY} is set and more than one provider is asked.
+ *
+ * @since 9.12
+ */
+@Internal
+public class ParallelAuthorisationEvaluator {
+    private static final Logger log = LoggerFactory.getLogger(ParallelAuthorisationEvaluator.class);
+
+    static final String ENABLED_PROPERTY = "jira.authorisation.parallel";
+    static final String THREADS_PROPERTY = "jira.authorisation.parallel.threads";
+    static final String QUEUE_SIZE_PROPERTY = "jira.authorisation.parallel.queue.size";
+    static final String DEADLINE_MILLIS_PROPERTY = "jira.authorisation.parallel.deadline.millis";
+
+    private static final int DEFAULT_THREADS = 16;
+    private static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final int DEFAULT_DEADLINE_MILLIS = 2000;
+
+    private final boolean enabled;
+    private final ExecutorService executor;
+    private final long deadlineNanos;
+
+    public ParallelAuthorisationEvaluator(final ThreadLocalDelegateExecutorFactory threadLocalDelegateExecutorFactory,
+                                          final EventPublisher eventPublisher) {
+        this(JiraSystemProperties.getInstance().getBoolean(ENABLED_PROPERTY),
+                threadLocalDelegateExecutorFactory.createExecutorService(newExecutor(
+                        JiraSystemProperties.getInstance().getInteger(THREADS_PROPERTY, DEFAULT_THREADS),
+                        JiraSystemProperties.getInstance().getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE))),
+                JiraSystemProperties.getInstance().getInteger(DEADLINE_MILLIS_PROPERTY, DEFAULT_DEADLINE_MILLIS));
+        eventPublisher.register(this);
+    }
+
+    ParallelAuthorisationEvaluator(final boolean enabled, final ExecutorService executor, final long deadlineMillis) {
+        this.enabled = enabled;
+        this.executor = executor;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+    }
+
+    /**
+     * Stops the pool and interrupts the providers still running on it.
+     */
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @EventListener
+    public void onShutdown(final ComponentManagerShutdownEvent event) {
+        stop();
+    }
+
+    /**
+     * @return whether providers are asked in parallel
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param authorisations Providers in order of precedence
+     * @return decision of the first provider that doesn't abstain, {@link Authorisation.Decision#ABSTAIN} if none
+     */
+    @Nonnull
+    public Authorisation.Decision authoriseForLogin(@Nonnull final List<? extends Authorisation> authorisations,
+                                                    @Nonnull final ApplicationUser user, final HttpServletRequest request) {
+        return evaluate(authorisations, request, (authorisation, providerRequest) -> authorisation.authoriseForLogin(user, providerRequest));
+    }
+
+    /**
+     * @param authorisations Providers in order of precedence
+     * @return decision of the first provider that doesn't abstain, {@link Authorisation.Decision#ABSTAIN} if none
+     */
+    @Nonnull
+    public Authorisation.Decision authoriseForRole(@Nonnull final List<? extends Authorisation> authorisations,
+                                                   @Nullable final ApplicationUser user, final HttpServletRequest request,
+                                                   final String role) {
+        return evaluate(authorisations, request, (authorisation, providerRequest) -> authorisation.authoriseForRole(user, providerRequest, role));
+    }
+
+    private Authorisation.Decision evaluate(final List<? extends Authorisation> authorisations, final HttpServletRequest request,
+                                            final BiFunction<Authorisation, HttpServletRequest, Authorisation.Decision> decision) {
+        if (!enabled || authorisations.size() < 2 || executor.isShutdown()) {
+            return evaluateSerially(authorisations, request, decision);
+        }
+
+        final long deadline = System.nanoTime() + deadlineNanos;
+        final List<Future<Authorisation.Decision>> decisions = new ArrayList<>(authorisations.size());
+        try (ScopedRequest scopedRequest = request == null ? null : ScopedRequest.of(request)) {
+            final HttpServletRequest providerRequest = scopedRequest == null ? null : scopedRequest.getRequest();
+            try {
+                for (final Authorisation authorisation : authorisations) {
+                    decisions.add(executor.submit(() -> decideSafely(authorisation, providerRequest, decision)));
+                }
+            } catch (RejectedExecutionException e) {
+                log.debug("Authorisation evaluator is shut down, asking providers serially");
+                decisions.forEach(future -> future.cancel(true));
+                return evaluateSerially(authorisations, request, decision);
+            }
+            for (int i = 0; i < decisions.size(); i++) {
+                final Authorisation.Decision result = await(decisions.get(i), deadline, authorisations.get(i));
+                if (result != Authorisation.Decision.ABSTAIN) {
+                    return result;
+                }
+            }
+            return Authorisation.Decision.ABSTAIN;
+        } finally {
+            decisions.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static Authorisation.Decision evaluateSerially(final List<? extends Authorisation> authorisations, final HttpServletRequest request,
+                                                           final BiFunction<Authorisation, HttpServletRequest, Authorisation.Decision> decision) {
+        for (final Authorisation authorisation : authorisations) {
+            final Authorisation.Decision result = decideSafely(authorisation, request, decision);
+            if (result != Authorisation.Decision.ABSTAIN) {
+                return result;
+            }
+        }
+        return Authorisation.Decision.ABSTAIN;
+    }
+
+    private static Authorisation.Decision await(final Future<Authorisation.Decision> future, final long deadline,
+                                                final Authorisation authorisation) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Authorisation {} didn't decide in time, denying access", authorisation.getClass().getName());
+            return Authorisation.Decision.DENIED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Authorisation.Decision.DENIED;
+        } catch (ExecutionException e) {
+            // decideSafely already turned failures of the provider into abstentions
+            log.warn("Authorisation {} failed, treating it as abstained", authorisation.getClass().getName(), e.getCause());
+            return Authorisation.Decision.ABSTAIN;
+        }
+    }
+
+    private static Authorisation.Decision decideSafely(final Authorisation authorisation, final HttpServletRequest request,
+                                                       final BiFunction<Authorisation, HttpServletRequest, Authorisation.Decision> decision) {
+        try {
+            final Authorisation.Decision result = decision.apply(authorisation, request);
+            return result == null ? Authorisation.Decision.ABSTAIN : result;
+        } catch (RuntimeException e) {
+            log.warn("Authorisation {} failed, treating it as abstained", authorisation.getClass().getName(), e);
+            return Authorisation.Decision.ABSTAIN;
+        }
+    }
+
+    /**
+     * Pool of at most {@code threads} threads and {@code queueSize} waiting providers. Providers that don't fit run on
+     * the calling thread, which slows down the requests that keep the pool busy instead of queueing without bound.
+     */
+    static ThreadPoolExecutor newExecutor(final int threads, final int queueSize) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder().setNameFormat("authorisation-evaluator-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,110 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.atlassian.annotations.Internal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Immutable set of path prefixes, compiled once so that matching a path doesn't depend on the number of prefixes.
+ *
+ * A path matches when it starts with any of the prefixes, which covers both exact matches and sub-paths. Prefixes
+ * are trimmed and empty ones are ignored, so a blank entry can't match every path.
+ *
+ * Prefixes that start with another prefix are redundant and dropped, and the remaining ones are kept sorted. Then
+ * the only prefix that can match a path is the greatest one not greater than the path, so a lookup is a binary
+ * search that doesn't allocate.
+ *
+ * @since 9.12
+ */
+@Internal
+public final class PathPrefixMatcher {
+    private static final PathPrefixMatcher EMPTY = new PathPrefixMatcher(new String[0]);
+
+    private final String[] prefixes;
+
+    private PathPrefixMatcher(final String[] prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * @param prefixes Path prefixes, entries can be {@code null} or blank
+     * @return matcher of all non blank prefixes
+     */
+    @Nonnull
+    public static PathPrefixMatcher compile(@Nonnull final Iterable<String> prefixes) {
+        final TreeSet<String> sorted = new TreeSet<>();
+        for (final String prefix : prefixes) {
+            if (prefix != null && !prefix.trim().isEmpty()) {
+                sorted.add(prefix.trim());
+            }
+        }
+        if (sorted.isEmpty()) {
+            return EMPTY;
+        }
+        // in sorted order a prefix comes right before the entries starting with it
+        final String[] compiled = new String[sorted.size()];
+        int size = 0;
+        for (final String prefix : sorted) {
+            if (size == 0 || !prefix.startsWith(compiled[size - 1])) {
+                compiled[size++] = prefix;
+            }
+        }
+        return new PathPrefixMatcher(Arrays.copyOf(compiled, size));
+    }
+
+    /**
+     * @return matcher that doesn't match any path
+     */
+    @Nonnull
+    public static PathPrefixMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param path Path to check, can be {@code null}
+     * @return whether the path starts with any of the prefixes
+     */
+    public boolean matches(@Nullable final String path) {
+        if (path == null || prefixes.length == 0) {
+            return false;
+        }
+        final int index = Arrays.binarySearch(prefixes, path);
+        if (index >= 0) {
+            return true;
+        }
+        final int floor = -index - 2;
+        return floor >= 0 && path.startsWith(prefixes[floor]);
+    }
+
+    /**
+     * @return number of prefixes left after dropping redundant ones
+     */
+    public int size() {
+        return prefixes.length;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Arrays.equals(prefixes, ((PathPrefixMatcher) o).prefixes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(prefixes);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toString(Arrays.asList(prefixes));
+    }
+}
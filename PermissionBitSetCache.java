@@ -0,0 +1,210 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.annotations.Internal;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSortedSet;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.SparseFixedBitSet;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per segment cache of the documents matching permission field contents generated by
+ * {@link com.atlassian.jira.issue.index.SecurityIndexingUtils}, e.g. {@code p#<project>}, {@code s#<level>} and
+ * {@code s#<level>#p#<project>}.
+ *
+ * Those contents are shared by many issues and change only when the project or issue security level of an issue
+ * changes, which creates a new segment anyway. The bit set of each content is read from the postings once per
+ * segment, lazily, and dropped when Lucene closes the segment core. Queries from {@link #newQuery(Collection)} then
+ * OR the cached bit sets instead of enumerating the postings of every content on every search.
+ *
+ * The union of the bit sets of a query is cached per segment as well. Users with the same groups and roles get the
+ * same contents, so their searches share a union instead of allocating and filling a {@code maxDoc} bit set each;
+ * only the {@value #UNIONS_PER_SEGMENT} most recently used unions are kept per segment.
+ *
+ * Bit sets are keyed by segment core, so they don't account for deletions; live docs are applied by the searcher.
+ * Contents with few postings are kept as sparse bit sets, so memory is bounded by roughly {@code 128 * maxDoc / 8}
+ * bytes per field and segment for the dense ones plus the size of the postings for the sparse ones, plus
+ * {@code maxDoc / 8} bytes per cached union.
+ * Field value contents ({@code p#<project>#<field>#<value>}) are specific to a user or group and shouldn't be
+ * cached here.
+ *
+ * @since 9.12
+ */
+@Internal
+public class PermissionBitSetCache {
+    static final int UNIONS_PER_SEGMENT = 32;
+
+    private final Map<IndexReader.CacheKey, Segment> segments = new ConcurrentHashMap<>();
+
+    /**
+     * The contents have to be of a single permission field. Project and issue security level contents must never be
+     * ORed: an issue is visible only if the searcher has a project permission <em>and</em> the issue has no security
+     * level or one the searcher is granted, so callers query each field separately and require both.
+     *
+     * @param terms Permission field contents of one field, any of which has to match
+     * @return query matching documents that have any of the given terms
+     * @throws IllegalArgumentException if the contents are of more than one field
+     */
+    public Query newQuery(final Collection<Term> terms) {
+        final ImmutableSortedSet<Term> sortedTerms = ImmutableSortedSet.copyOf(terms);
+        if (!sortedTerms.isEmpty() && !sortedTerms.first().field().equals(sortedTerms.last().field())) {
+            throw new IllegalArgumentException("Permission contents of different fields must not be ORed: " + sortedTerms.first().field()
+                    + ", " + sortedTerms.last().field());
+        }
+        return new PermissionBitSetQuery(this, sortedTerms);
+    }
+
+    /**
+     * @return number of segments with cached bit sets
+     */
+    int cachedSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return number of unions cached over all segments
+     */
+    long cachedUnionCount() {
+        return segments.values().stream().mapToLong(segment -> segment.unions.size()).sum();
+    }
+
+    BitSet getBitSet(final LeafReader reader, final Term term) throws IOException {
+        final Segment segment = getSegment(reader);
+        if (segment == null) {
+            return readBitSet(reader, term);
+        }
+        final BitSet cached = segment.bitSets.get(term);
+        if (cached != null) {
+            return cached;
+        }
+        final BitSet bitSet = readBitSet(reader, term);
+        segment.bitSets.put(term, bitSet);
+        return bitSet;
+    }
+
+    private BitSet getUnion(final LeafReader reader, final PermissionBitSetQuery query) throws IOException {
+        final Segment segment = getSegment(reader);
+        if (segment == null) {
+            return union(reader, query.terms);
+        }
+        try {
+            return segment.unions.get(query, () -> union(reader, query.terms));
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private BitSet union(final LeafReader reader, final Collection<Term> terms) throws IOException {
+        final FixedBitSet union = new FixedBitSet(reader.maxDoc());
+        for (final Term term : terms) {
+            final BitSet bitSet = getBitSet(reader, term);
+            union.or(new BitSetIterator(bitSet, bitSet.approximateCardinality()));
+        }
+        return union;
+    }
+
+    private Segment getSegment(final LeafReader reader) {
+        final IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+        if (cacheHelper == null) {
+            return null;
+        }
+        return segments.computeIfAbsent(cacheHelper.getKey(), key -> {
+            cacheHelper.addClosedListener(segments::remove);
+            return new Segment();
+        });
+    }
+
+    private static BitSet readBitSet(final LeafReader reader, final Term term) throws IOException {
+        final Terms terms = reader.terms(term.field());
+        if (terms != null) {
+            final TermsEnum termsEnum = terms.iterator();
+            if (termsEnum.seekExact(term.bytes())) {
+                return BitSet.of(termsEnum.postings(null, PostingsEnum.NONE), reader.maxDoc());
+            }
+        }
+        return new SparseFixedBitSet(reader.maxDoc());
+    }
+
+    private static final class Segment {
+        private final Map<Term, BitSet> bitSets = new ConcurrentHashMap<>();
+        private final Cache<PermissionBitSetQuery, BitSet> unions = CacheBuilder.newBuilder()
+                .maximumSize(UNIONS_PER_SEGMENT)
+                .build();
+    }
+
+    private static final class PermissionBitSetQuery extends Query {
+        private final PermissionBitSetCache cache;
+        private final SortedSet<Term> terms;
+        private final int hash;
+
+        private PermissionBitSetQuery(final PermissionBitSetCache cache, final SortedSet<Term> terms) {
+            this.cache = cache;
+            this.terms = terms;
+            this.hash = 31 * classHash() + terms.hashCode();
+        }
+
+        @Override
+        public Weight createWeight(final IndexSearcher searcher, final boolean needsScores, final float boost) {
+            return new ConstantScoreWeight(this, boost) {
+                @Override
+                public Scorer scorer(final LeafReaderContext context) throws IOException {
+                    final LeafReader reader = context.reader();
+                    if (terms.isEmpty()) {
+                        return null;
+                    }
+                    if (terms.size() == 1) {
+                        final BitSet bitSet = cache.getBitSet(reader, terms.first());
+                        return new ConstantScoreScorer(this, score(), new BitSetIterator(bitSet, bitSet.approximateCardinality()));
+                    }
+                    final BitSet matches = cache.getUnion(reader, PermissionBitSetQuery.this);
+                    return new ConstantScoreScorer(this, score(), new BitSetIterator(matches, matches.approximateCardinality()));
+                }
+
+                @Override
+                public boolean isCacheable(final LeafReaderContext context) {
+                    // the bit sets are cached already, caching their union again would only duplicate memory
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public String toString(final String field) {
+            return "PermissionBitSetQuery(" + terms.size() + " terms)";
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return sameClassAs(other)
+                    && cache == ((PermissionBitSetQuery) other).cache
+                    && terms.equals(((PermissionBitSetQuery) other).terms);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
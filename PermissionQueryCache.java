@@ -0,0 +1,109 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
+import com.atlassian.jira.security.PermissionVersions;
+import com.atlassian.jira.security.UserPermissionCache;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.util.dbc.Assertions;
+import com.atlassian.util.profiling.Metrics;
+import com.atlassian.util.profiling.Ticker;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the permission queries built for searchers.
+ *
+ * Building the permission query for a user that is a member of many groups and project roles is expensive, while
+ * its result only changes when the permission configuration or the user's memberships change. Each user has at most
+ * one query, kept up to date by {@link UserPermissionCache}:
+ * <ul>
+ * <li>changes of permission schemes, issue security schemes and levels, project roles and projects drop all
+ * queries</li>
+ * <li>changes of a user's group memberships drop only their query</li>
+ * </ul>
+ * A query built from configuration or memberships that changed while it was being built is never served.
+ *
+ * The cache is weighted by the number of leaf clauses of the cached queries, so a few users in hundreds of groups
+ * can't push out everyone else by count alone.
+ *
+ * @since 9.12
+ */
+@Internal
+public class PermissionQueryCache {
+    static final String MAX_CLAUSES_PROPERTY = "jira.search.permission.query.cache.max.clauses";
+
+    private static final int DEFAULT_MAX_CLAUSES = 500_000;
+
+    private static final Duration EXPIRE_AFTER_ACCESS = Duration.ofMinutes(30);
+
+    private final UserPermissionCache<Query> queries;
+
+    private final PermissionSearchMetrics metrics;
+
+    public PermissionQueryCache(final PermissionVersions versions, final PermissionSearchMetrics metrics) {
+        this(versions, JiraSystemProperties.getInstance().getInteger(MAX_CLAUSES_PROPERTY, DEFAULT_MAX_CLAUSES), metrics);
+    }
+
+    PermissionQueryCache(final PermissionVersions versions, final int maxClauses, final PermissionSearchMetrics metrics) {
+        this.metrics = metrics;
+        this.queries = new UserPermissionCache<>(versions, maxClauses, PermissionQueryCache::countClauses, EXPIRE_AFTER_ACCESS);
+    }
+
+    /**
+     * Returns the cached permission query for the user, building it if there is no up to date one.
+     *
+     * @param user         The searcher, {@code null} for anonymous
+     * @param queryBuilder Builds the permission query for the user and the current permission configuration
+     * @return permission query of the user
+     */
+    @Nonnull
+    public Query getPermissionQuery(@Nullable final ApplicationUser user, @Nonnull final Supplier<Query> queryBuilder) {
+        Assertions.notNull("queryBuilder", queryBuilder);
+        final long start = System.nanoTime();
+        try (Ticker ignored = Metrics.metric(PermissionSearchMetrics.QUERY_TIMER).startTimer()) {
+            final Query cached = queries.getIfCurrent(user);
+            if (cached != null) {
+                metrics.recordCacheHit();
+                return cached;
+            }
+            return queries.build(user, () -> buildQuery(queryBuilder));
+        } finally {
+            metrics.recordQuery(System.nanoTime() - start);
+        }
+    }
+
+    private Query buildQuery(final Supplier<Query> queryBuilder) {
+        final long start = System.nanoTime();
+        try (Ticker ignored = Metrics.metric(PermissionSearchMetrics.BUILD_TIMER).startTimer()) {
+            return queryBuilder.get();
+        } finally {
+            metrics.recordBuild(System.nanoTime() - start);
+        }
+    }
+
+    long size() {
+        return queries.size();
+    }
+
+    static int countClauses(final Query query) {
+        if (query instanceof ConstantScoreQuery) {
+            return countClauses(((ConstantScoreQuery) query).getQuery());
+        }
+        if (query instanceof BooleanQuery) {
+            int clauses = 0;
+            for (final BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                clauses += countClauses(clause.getQuery());
+            }
+            return Math.max(clauses, 1);
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,132 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+
+/**
+ * Ways of turning the permission field contents a searcher is granted into a Lucene query.
+ *
+ * An issue is visible if the searcher has a project permission in its project <em>and</em> the issue either has no
+ * security level or one the searcher is granted, so the query requires a match on each of the two permission fields.
+ * Contents of one field are ORed, contents of different fields never are.
+ *
+ * The engine is selected with the {@value #ENGINE_PROPERTY} system property, {@link #TERMS} by default.
+ *
+ * @since 9.12
+ */
+@Internal
+public enum PermissionQueryEngine {
+    /**
+     * One {@link TermQuery} clause per permission field content. The number of clauses grows with the number of
+     * projects, security levels and groups of the searcher.
+     */
+    TERMS {
+        @Override
+        Query newFieldQuery(final String field, final Collection<Term> sharedTerms, final Collection<Term> userTerms,
+                            final PermissionBitSetCache bitSetCache) {
+            final BooleanQuery.Builder query = new BooleanQuery.Builder();
+            sharedTerms.forEach(term -> query.add(new TermQuery(term), BooleanClause.Occur.SHOULD));
+            userTerms.forEach(term -> query.add(new TermQuery(term), BooleanClause.Occur.SHOULD));
+            return query.build();
+        }
+    },
+    /**
+     * Contents shared by many issues (project and issue security level ones) are ORed from bit sets cached per
+     * segment by {@link PermissionBitSetCache}, so they cost a single clause per field regardless of their number.
+     * Contents specific to the searcher (field values) are queried with one {@link TermInSetQuery} per permission
+     * field, so users in hundreds of groups don't run into {@link BooleanQuery#getMaxClauseCount()} either.
+     */
+    BIT_SETS {
+        @Override
+        Query newFieldQuery(final String field, final Collection<Term> sharedTerms, final Collection<Term> userTerms,
+                            final PermissionBitSetCache bitSetCache) {
+            final Query sharedQuery = bitSetCache.newQuery(sharedTerms);
+            if (userTerms.isEmpty()) {
+                return sharedQuery;
+            }
+            final List<BytesRef> userContents = new ArrayList<>(userTerms.size());
+            userTerms.forEach(term -> userContents.add(term.bytes()));
+            return new BooleanQuery.Builder()
+                    .add(sharedQuery, BooleanClause.Occur.SHOULD)
+                    .add(new TermInSetQuery(field, userContents), BooleanClause.Occur.SHOULD)
+                    .build();
+        }
+    };
+
+    static final String ENGINE_PROPERTY = "jira.search.permission.engine";
+
+    private static final Logger log = LoggerFactory.getLogger(PermissionQueryEngine.class);
+
+    /**
+     * The security level side has to include the content of issues without a security level, {@code s#-1}, for
+     * those issues to match.
+     *
+     * @param projectSharedTerms Project contents that don't depend on a field value, e.g. {@code p#<project>}
+     * @param projectUserTerms   Project contents of field values matching the searcher, e.g.
+     *                           {@code p#<project>#issue_assignee#<user>}
+     * @param levelSharedTerms   Security level contents that don't depend on a field value, e.g. {@code s#<level>}
+     *                           or {@code s#<level>#p#<project>}
+     * @param levelUserTerms     Security level contents of field values matching the searcher, e.g.
+     *                           {@code s#<level>#issue_assignee#<user>}
+     * @param bitSetCache        Cache used by engines that work on bit sets
+     * @return query matching issues that have any of the project contents and any of the security level contents
+     * @throws IllegalArgumentException if a content isn't of the field of its side
+     */
+    public Query newQuery(final Collection<Term> projectSharedTerms, final Collection<Term> projectUserTerms,
+                          final Collection<Term> levelSharedTerms, final Collection<Term> levelUserTerms,
+                          final PermissionBitSetCache bitSetCache) {
+        checkField(PROJECT_PERMISSIONS_FIELD, projectSharedTerms, projectUserTerms);
+        checkField(ISSUE_LEVEL_PERMISSIONS_FIELD, levelSharedTerms, levelUserTerms);
+        return new ConstantScoreQuery(new BooleanQuery.Builder()
+                .add(newFieldQuery(PROJECT_PERMISSIONS_FIELD, projectSharedTerms, projectUserTerms, bitSetCache), BooleanClause.Occur.MUST)
+                .add(newFieldQuery(ISSUE_LEVEL_PERMISSIONS_FIELD, levelSharedTerms, levelUserTerms, bitSetCache), BooleanClause.Occur.MUST)
+                .build());
+    }
+
+    /**
+     * @return query matching documents that have any of the given contents, all of which are of the given field
+     */
+    abstract Query newFieldQuery(String field, Collection<Term> sharedTerms, Collection<Term> userTerms, PermissionBitSetCache bitSetCache);
+
+    private static void checkField(final String field, final Collection<Term> sharedTerms, final Collection<Term> userTerms) {
+        for (final Collection<Term> terms : ImmutableList.of(sharedTerms, userTerms)) {
+            for (final Term term : terms) {
+                if (!field.equals(term.field())) {
+                    throw new IllegalArgumentException("Expected contents of " + field + " but got " + term);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return engine selected with the {@value #ENGINE_PROPERTY} system property
+     */
+    public static PermissionQueryEngine fromSystemProperties() {
+        final String engine = JiraSystemProperties.getInstance().getProperty(ENGINE_PROPERTY, TERMS.name());
+        try {
+            return valueOf(engine.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown permission query engine '{}' set in {}, falling back to {}", engine, ENGINE_PROPERTY, TERMS);
+            return TERMS;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ComponentManagerShutdownEvent;
+import com.atlassian.jira.extension.Startable;
+import com.atlassian.jira.issue.index.PermissionTermStatistics;
+import com.atlassian.jira.issue.search.SearchProviderFactory;
+import com.atlassian.jira.util.thread.JiraThreadLocalUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Counters of permission queries and the last collected {@link PermissionTermStatistics}, exported through JMX.
+ *
+ * The time every search spends getting its permission query, whether built or served from the cache, is also
+ * published as the {@value #QUERY_TIMER} timer, and the time of builds alone as the {@value #BUILD_TIMER} timer, by
+ * {@link PermissionQueryCache}, so they show up next to the other search metrics.
+ *
+ * Term statistics walk the whole permission terms dictionary, so they are collected only on demand, through the
+ * {@link #collectPermissionTermStatistics()} JMX operation.
+ *
+ * @since 9.12
+ */
+@Internal
+public class PermissionSearchMetrics implements PermissionSearchMetricsMXBean, Startable {
+    private static final Logger log = LoggerFactory.getLogger(PermissionSearchMetrics.class);
+
+    static final String QUERY_TIMER = "jira.search.permission.query";
+
+    static final String BUILD_TIMER = "jira.search.permission.query.build";
+
+    static final String OBJECT_NAME = "com.atlassian.jira:type=metrics,category00=search,name=permissions";
+
+    private static final int TOP_TERMS = 20;
+
+    private final SearchProviderFactory searchProviderFactory;
+    private final JiraThreadLocalUtil jiraThreadLocalUtil;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryTimeNanos = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder buildTimeNanos = new LongAdder();
+    private volatile PermissionTermStatistics termStatistics;
+
+    public PermissionSearchMetrics(final SearchProviderFactory searchProviderFactory, final JiraThreadLocalUtil jiraThreadLocalUtil,
+                                   final EventPublisher eventPublisher) {
+        this(searchProviderFactory, jiraThreadLocalUtil);
+        eventPublisher.register(this);
+    }
+
+    PermissionSearchMetrics(final SearchProviderFactory searchProviderFactory, final JiraThreadLocalUtil jiraThreadLocalUtil) {
+        this.searchProviderFactory = searchProviderFactory;
+        this.jiraThreadLocalUtil = jiraThreadLocalUtil;
+    }
+
+    @Override
+    public void start() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(OBJECT_NAME);
+        if (!mBeanServer.isRegistered(objectName)) {
+            mBeanServer.registerMBean(this, objectName);
+        }
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #start()}.
+     */
+    public void stop() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(OBJECT_NAME);
+        if (mBeanServer.isRegistered(objectName)) {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    @EventListener
+    public void onShutdown(final ComponentManagerShutdownEvent event) throws Exception {
+        stop();
+    }
+
+    void recordQuery(final long nanos) {
+        queries.increment();
+        queryTimeNanos.add(nanos);
+    }
+
+    void recordBuild(final long nanos) {
+        builds.increment();
+        buildTimeNanos.add(nanos);
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * @param termStatistics Newly collected statistics of the permission fields
+     */
+    public void setTermStatistics(final PermissionTermStatistics termStatistics) {
+        this.termStatistics = termStatistics;
+    }
+
+    /**
+     * Collects the statistics of the permission fields of the issue index; the searcher is released afterwards.
+     */
+    @Override
+    public void collectPermissionTermStatistics() throws IOException {
+        jiraThreadLocalUtil.preCall();
+        try {
+            setTermStatistics(PermissionTermStatistics.collect(
+                    searchProviderFactory.getSearcher(SearchProviderFactory.ISSUE_INDEX).getIndexReader(), TOP_TERMS));
+        } finally {
+            jiraThreadLocalUtil.postCall(log);
+        }
+    }
+
+    @Override
+    public long getPermissionQueryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getPermissionQueryTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(queryTimeNanos.sum());
+    }
+
+    @Override
+    public long getPermissionQueryBuildCount() {
+        return builds.sum();
+    }
+
+    @Override
+    public long getPermissionQueryCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getPermissionQueryBuildTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(buildTimeNanos.sum());
+    }
+
+    @Override
+    public Map<String, Long> getPermissionTermCounts() {
+        final PermissionTermStatistics statistics = termStatistics;
+        if (statistics == null) {
+            return ImmutableMap.of();
+        }
+        final ImmutableMap.Builder<String, Long> termCounts = ImmutableMap.builder();
+        statistics.getTermCounts().forEach((contentType, count) -> termCounts.put(contentType.name(), count));
+        return termCounts.build();
+    }
+
+    @Override
+    public List<String> getTopPermissionTerms() {
+        final PermissionTermStatistics statistics = termStatistics;
+        if (statistics == null) {
+            return ImmutableList.of();
+        }
+        return statistics.getTopTerms().stream().map(Object::toString).collect(toList());
+    }
+}
@@ -0,0 +1,53 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of {@link PermissionSearchMetrics}.
+ *
+ * @since 9.12
+ */
+public interface PermissionSearchMetricsMXBean {
+    /**
+     * Walks the permission terms of the issue index and replaces the statistics returned by
+     * {@link #getPermissionTermCounts()} and {@link #getTopPermissionTerms()}.
+     */
+    void collectPermissionTermStatistics() throws IOException;
+
+    /**
+     * @return number of permission queries requested by searches since startup, built or cached
+     */
+    long getPermissionQueryCount();
+
+    /**
+     * @return total time searches spent getting their permission query since startup, in milliseconds
+     */
+    long getPermissionQueryTimeMillis();
+
+    /**
+     * @return number of permission queries built since startup
+     */
+    long getPermissionQueryBuildCount();
+
+    /**
+     * @return number of permission queries served from {@link PermissionQueryCache} since startup
+     */
+    long getPermissionQueryCacheHitCount();
+
+    /**
+     * @return total time spent building permission queries since startup, in milliseconds
+     */
+    long getPermissionQueryBuildTimeMillis();
+
+    /**
+     * @return number of distinct permission field terms of each content type, as of the last collection, empty if never collected
+     */
+    Map<String, Long> getPermissionTermCounts();
+
+    /**
+     * @return permission field terms with the longest posting lists, as of the last collection
+     */
+    List<String> getTopPermissionTerms();
+}
@@ -0,0 +1,168 @@
+package com.atlassian.jira.issue.index;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.issue.Issue;
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+
+/**
+ * Collects the permission field contents of a single issue document, see {@link SecurityIndexingUtils}.
+ *
+ * Project and issue security level are resolved once, when the accumulator is created, instead of on every
+ * indexed field value. Contents are deduplicated, so a value that is indexed more than once for the same field
+ * ends up in the document as a single field. Nothing is added to the document until {@link #flushTo(Document)}.
+ *
+ * Values of the same field are encoded in one pass that reuses the encoded project, security level and field
+ * name, so issues with many user and group fields should add all values of a field together with
+ * {@link #addFieldPermissions(String, Collection)}.
+ *
+ * When many issues are indexed together, e.g. by a reindex worker, their accumulators should be created from one
+ * {@link Batch}, so that issues of the same project and security level share the encoded contents instead of
+ * encoding them again for every issue.
+ *
+ * Instances are not thread safe and are meant to live only while a single document is built. Separate instances
+ * can be used concurrently, e.g. by reindex worker threads, as long as they don't share a batch.
+ *
+ * @since 9.12
+ */
+@Internal
+public class PermissionTermAccumulator {
+    private final Batch batch;
+    private final Long projectId;
+    private final Long issueSecurityLevel;
+    private boolean issuePermissions;
+    private final Map<String, Set<String>> fieldValues = new LinkedHashMap<>();
+
+    public PermissionTermAccumulator(final Issue issue) {
+        this(issue, new Batch());
+    }
+
+    private PermissionTermAccumulator(final Issue issue, final Batch batch) {
+        this.batch = batch;
+        this.projectId = issue.getProjectObject().getId();
+        this.issueSecurityLevel = issue.getSecurityLevelId();
+    }
+
+    /**
+     * Same as {@link SecurityIndexingUtils#indexPermissions(Document, Issue)}.
+     *
+     * @return this accumulator
+     */
+    public PermissionTermAccumulator addIssuePermissions() {
+        issuePermissions = true;
+        return this;
+    }
+
+    /**
+     * Same as {@link SecurityIndexingUtils#indexPermissions(Document, Issue, String, String)}.
+     *
+     * @param fieldName  The name of the field that is being indexed
+     * @param fieldValue The value of the field that is being indexed
+     * @return this accumulator
+     */
+    public PermissionTermAccumulator addFieldPermissions(final String fieldName, final String fieldValue) {
+        fieldValues.computeIfAbsent(fieldName, name -> new LinkedHashSet<>()).add(fieldValue);
+        return this;
+    }
+
+    /**
+     * Same as calling {@link #addFieldPermissions(String, String)} for each of the values.
+     *
+     * @param fieldName   The name of the field that is being indexed
+     * @param fieldValues The values of the field that are being indexed
+     * @return this accumulator
+     */
+    public PermissionTermAccumulator addFieldPermissions(final String fieldName, final Collection<String> fieldValues) {
+        if (!fieldValues.isEmpty()) {
+            this.fieldValues.computeIfAbsent(fieldName, name -> new LinkedHashSet<>()).addAll(fieldValues);
+        }
+        return this;
+    }
+
+    /**
+     * Adds all collected permission fields to the document.
+     *
+     * @param doc Document of the issue this accumulator was created for
+     */
+    public void flushTo(final Document doc) {
+        final Set<BytesRef> projectPermissions = new LinkedHashSet<>();
+        final Set<BytesRef> issueLevelPermissions = new LinkedHashSet<>();
+        if (issuePermissions) {
+            projectPermissions.add(batch.projectContents(projectId));
+            issueLevelPermissions.addAll(batch.issueLevelContents(issueSecurityLevel, projectId));
+        }
+        fieldValues.forEach((fieldName, values) -> {
+            SecurityIndexingUtils.generateForValues(batch.projectFieldPrefix(projectId, fieldName), values, projectPermissions::add);
+            if (issueSecurityLevel != null) {
+                SecurityIndexingUtils.generateForValues(batch.issueLevelFieldPrefix(issueSecurityLevel, fieldName), values, issueLevelPermissions::add);
+            }
+        });
+
+        for (final BytesRef value : projectPermissions) {
+            doc.add(new StringField(PROJECT_PERMISSIONS_FIELD, value, Field.Store.NO));
+        }
+        for (final BytesRef value : issueLevelPermissions) {
+            doc.add(new StringField(ISSUE_LEVEL_PERMISSIONS_FIELD, value, Field.Store.NO));
+        }
+    }
+
+    /**
+     * Encoded contents shared by the accumulators of a batch of issues. The project, issue security level and
+     * field name parts are encoded once per batch, and only the field values once per issue.
+     *
+     * A batch is not thread safe and grows with the number of distinct projects, security levels and fields of its
+     * issues, so each reindex worker should use its own and drop it after the batch was indexed.
+     */
+    public static final class Batch {
+        private final SecurityIndexingUtils.TermFormat format = SecurityIndexingUtils.getIndexingFormat();
+        private final Map<Long, BytesRef> projectContents = new HashMap<>();
+        private final Map<List<Long>, List<BytesRef>> issueLevelContents = new HashMap<>();
+        private final Map<Long, Map<String, BytesRef>> projectFieldPrefixes = new HashMap<>();
+        private final Map<Long, Map<String, BytesRef>> issueLevelFieldPrefixes = new HashMap<>();
+
+        /**
+         * @param issue Issue of the batch
+         * @return accumulator of the issue sharing the encoded contents of this batch
+         */
+        public PermissionTermAccumulator accumulatorFor(final Issue issue) {
+            return new PermissionTermAccumulator(issue, this);
+        }
+
+        private BytesRef projectContents(final Long projectId) {
+            return projectContents.computeIfAbsent(projectId,
+                    id -> SecurityIndexingUtils.generateProjectPermissionFieldContents(format, id));
+        }
+
+        private List<BytesRef> issueLevelContents(final Long issueSecurityLevel, final Long projectId) {
+            return issueLevelContents.computeIfAbsent(Arrays.asList(issueSecurityLevel, projectId), key -> issueSecurityLevel == null
+                    ? ImmutableList.of(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, -1L))
+                    : ImmutableList.of(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, issueSecurityLevel),
+                    SecurityIndexingUtils.generateIssueLevelPermissionContents(format, issueSecurityLevel, projectId)));
+        }
+
+        private BytesRef projectFieldPrefix(final Long projectId, final String fieldName) {
+            return projectFieldPrefixes.computeIfAbsent(projectId, id -> new HashMap<>()).computeIfAbsent(fieldName,
+                    name -> SecurityIndexingUtils.generateProjectPermissionFieldPrefix(format, projectId, name));
+        }
+
+        private BytesRef issueLevelFieldPrefix(final Long issueSecurityLevel, final String fieldName) {
+            return issueLevelFieldPrefixes.computeIfAbsent(issueSecurityLevel, id -> new HashMap<>()).computeIfAbsent(fieldName,
+                    name -> SecurityIndexingUtils.generateIssueLevelPermissionFieldPrefix(format, issueSecurityLevel, name));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.atlassian.jira.issue.index;
+
+import com.atlassian.annotations.Internal;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+
+/**
+ * Snapshot of the terms held by the permission fields of an index: number of distinct terms of each
+ * {@link SecurityIndexingUtils.ContentType} and the terms with the longest posting lists, which are the ones
+ * that cost most when permission queries are executed.
+ *
+ * @since 9.12
+ */
+@Internal
+public class PermissionTermStatistics {
+    private final Map<SecurityIndexingUtils.ContentType, Long> termCounts;
+    private final List<TermFrequency> topTerms;
+
+    private PermissionTermStatistics(final Map<SecurityIndexingUtils.ContentType, Long> termCounts, final List<TermFrequency> topTerms) {
+        this.termCounts = ImmutableMap.copyOf(termCounts);
+        this.topTerms = ImmutableList.copyOf(topTerms);
+    }
+
+    /**
+     * Walks the terms dictionaries of both permission fields. Its cost is proportional to the number of permission
+     * terms, so it should be called on demand rather than on every search.
+     *
+     * @param reader Reader of the issue index
+     * @param topN   Number of terms with the longest posting lists to keep
+     * @return statistics of the permission fields
+     */
+    public static PermissionTermStatistics collect(final IndexReader reader, final int topN) throws IOException {
+        final Map<SecurityIndexingUtils.ContentType, Long> termCounts = new EnumMap<>(SecurityIndexingUtils.ContentType.class);
+        final PriorityQueue<TermFrequency> topTerms = new PriorityQueue<>(Math.max(topN, 1), Comparator.comparingInt(TermFrequency::getDocFreq));
+        for (final String field : new String[]{PROJECT_PERMISSIONS_FIELD, ISSUE_LEVEL_PERMISSIONS_FIELD}) {
+            final Terms terms = MultiFields.getTerms(reader, field);
+            if (terms == null) {
+                continue;
+            }
+            final TermsEnum termsEnum = terms.iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                termCounts.merge(SecurityIndexingUtils.getContentType(term), 1L, Long::sum);
+                final int docFreq = termsEnum.docFreq();
+                if (topTerms.size() < topN) {
+                    topTerms.add(new TermFrequency(field, term, docFreq));
+                } else if (topN > 0 && topTerms.peek().getDocFreq() < docFreq) {
+                    topTerms.poll();
+                    topTerms.add(new TermFrequency(field, term, docFreq));
+                }
+            }
+        }
+        final List<TermFrequency> sortedTopTerms = new ArrayList<>(topTerms);
+        sortedTopTerms.sort(Comparator.comparingInt(TermFrequency::getDocFreq).reversed());
+        return new PermissionTermStatistics(termCounts, sortedTopTerms);
+    }
+
+    /**
+     * @return number of distinct terms of each content type, summed over both permission fields
+     */
+    public Map<SecurityIndexingUtils.ContentType, Long> getTermCounts() {
+        return termCounts;
+    }
+
+    /**
+     * @return terms with the longest posting lists, longest first
+     */
+    public List<TermFrequency> getTopTerms() {
+        return topTerms;
+    }
+
+    public static class TermFrequency {
+        private final String field;
+        private final String term;
+        private final int docFreq;
+
+        TermFrequency(final String field, final BytesRef term, final int docFreq) {
+            this.field = field;
+            // compact contents aren't printable, they are shown as bytes
+            this.term = term.length > 0 && term.bytes[term.offset] >= '0' ? term.utf8ToString() : term.toString();
+            this.docFreq = docFreq;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getDocFreq() {
+            return docFreq;
+        }
+
+        @Override
+        public String toString() {
+            return field + ":" + term + "=" + docFreq;
+        }
+    }
+}
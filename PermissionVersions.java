@@ -0,0 +1,348 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.crowd.event.group.GroupDeletedEvent;
+import com.atlassian.crowd.event.group.GroupMembershipCreatedEvent;
+import com.atlassian.crowd.event.group.GroupMembershipDeletedEvent;
+import com.atlassian.crowd.event.group.GroupMembershipsCreatedEvent;
+import com.atlassian.crowd.event.user.UserDeletedEvent;
+import com.atlassian.crowd.event.user.UserUpdatedEvent;
+import com.atlassian.crowd.model.membership.MembershipType;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.event.ProjectCreatedEvent;
+import com.atlassian.jira.event.ProjectDeletedEvent;
+import com.atlassian.jira.event.ProjectUpdatedEvent;
+import com.atlassian.jira.event.issue.security.IssueSecurityLevelPermissionAddedEvent;
+import com.atlassian.jira.event.issue.security.IssueSecurityLevelPermissionDeletedEvent;
+import com.atlassian.jira.event.issue.security.IssueSecuritySchemeAddedToProjectEvent;
+import com.atlassian.jira.event.issue.security.IssueSecuritySchemeRemovedFromProjectEvent;
+import com.atlassian.jira.event.permission.PermissionAddedEvent;
+import com.atlassian.jira.event.permission.PermissionDeletedEvent;
+import com.atlassian.jira.event.permission.PermissionSchemeAddedToProjectEvent;
+import com.atlassian.jira.event.permission.PermissionSchemeRemovedFromProjectEvent;
+import com.atlassian.jira.event.project.ProjectArchivedEvent;
+import com.atlassian.jira.event.project.ProjectRestoredEvent;
+import com.atlassian.jira.event.role.ProjectRoleDeletedEvent;
+import com.atlassian.jira.event.role.ProjectRoleUpdatedEvent;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.security.plugin.ProjectPermissionOverrideModuleDescriptor;
+import com.atlassian.plugin.ModuleDescriptor;
+import com.atlassian.plugin.event.events.PluginModuleDisabledEvent;
+import com.atlassian.plugin.event.events.PluginModuleEnabledEvent;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.apache.commons.lang3.StringUtils.lowerCase;
+
+/**
+ * Versions of the permission configuration, for caches of results computed per user, such as permission queries or
+ * permission snapshots, to tell whether a cached result is still up to date.
+ *
+ * There is a global version, bumped by every change that may affect the permissions of any user, such as changes of
+ * permission and issue security schemes, project roles, project leads, projects being created, deleted, archived or
+ * restored and permission overrides being enabled or disabled, and a version per user, bumped when the group
+ * memberships of the user change or the user is updated, e.g. deactivated, or deleted. Group-in-group membership
+ * changes and deleted groups affect unknown users, so they bump the global version. User versions are kept in a fixed number of stripes selected by the
+ * lower case username, so they don't grow with the number of users; a membership change of a user makes the
+ * results of the other users of the stripe stale too, which only costs a rebuild.
+ *
+ * A cache takes the {@link Version} with {@link #get(String)} <em>before</em> it starts computing a result and stores
+ * the result with it. A result computed from memberships or configuration that changed in the meantime is then
+ * stored under an old version and never served, see {@link #isCurrent(Version, String)}. Caches can also register
+ * a {@link Listener} to drop stale entries eagerly.
+ *
+ * @since 9.12
+ */
+@Internal
+public class PermissionVersions {
+    private static final int USER_STRIPES = 1024;
+
+    private final AtomicLong global = new AtomicLong();
+
+    private final AtomicLongArray users = new AtomicLongArray(USER_STRIPES);
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public PermissionVersions(final EventPublisher eventPublisher) {
+        this();
+        eventPublisher.register(this);
+    }
+
+    PermissionVersions() {
+    }
+
+    /**
+     * @param username Username of the user, in any case, {@code null} for anonymous
+     * @return current version of the permission configuration for the user
+     */
+    @Nonnull
+    public Version get(@Nullable final String username) {
+        return new Version(global.get(), users.get(stripe(lowerCase(username))));
+    }
+
+    /**
+     * Same as {@code get(username).equals(version)}, without allocating.
+     *
+     * @param version  Version a result was computed for
+     * @param username Username of the user, in any case, {@code null} for anonymous
+     * @return whether the result is still up to date
+     */
+    public boolean isCurrent(@Nonnull final Version version, @Nullable final String username) {
+        return version.global == global.get() && version.user == users.get(stripe(lowerCase(username)));
+    }
+
+    /**
+     * Makes results of all users stale.
+     */
+    public void invalidateAll() {
+        global.incrementAndGet();
+        listeners.forEach(Listener::allInvalidated);
+    }
+
+    /**
+     * Makes results of the user with the given username stale.
+     */
+    public void invalidateUser(@Nullable final String username) {
+        final String lowerCaseUsername = lowerCase(username);
+        users.incrementAndGet(stripe(lowerCaseUsername));
+        listeners.forEach(listener -> listener.userInvalidated(lowerCaseUsername));
+    }
+
+    /**
+     * Registers a listener called after each bump of a version.
+     */
+    public void addListener(@Nonnull final Listener listener) {
+        listeners.add(listener);
+    }
+
+    @EventListener
+    public void onClearCache(final ClearCacheEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onPermissionAdded(final PermissionAddedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onPermissionDeleted(final PermissionDeletedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onPermissionSchemeAddedToProject(final PermissionSchemeAddedToProjectEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onPermissionSchemeRemovedFromProject(final PermissionSchemeRemovedFromProjectEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onIssueSecurityLevelPermissionAdded(final IssueSecurityLevelPermissionAddedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onIssueSecurityLevelPermissionDeleted(final IssueSecurityLevelPermissionDeletedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onIssueSecuritySchemeAddedToProject(final IssueSecuritySchemeAddedToProjectEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onIssueSecuritySchemeRemovedFromProject(final IssueSecuritySchemeRemovedFromProjectEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onProjectRoleUpdated(final ProjectRoleUpdatedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onProjectRoleDeleted(final ProjectRoleDeletedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onProjectCreated(final ProjectCreatedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onProjectDeleted(final ProjectDeletedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * The project lead can be granted permissions, other project details don't affect them.
+     */
+    @EventListener
+    public void onProjectUpdated(final ProjectUpdatedEvent event) {
+        final Project oldProject = event.getOldProject();
+        final Project project = event.getProject();
+        if (oldProject == null || project == null || !Objects.equals(oldProject.getLeadUserKey(), project.getLeadUserKey())) {
+            invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onProjectArchived(final ProjectArchivedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onProjectRestored(final ProjectRestoredEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onPluginModuleEnabled(final PluginModuleEnabledEvent event) {
+        onModuleChanged(event.getModule());
+    }
+
+    @EventListener
+    public void onPluginModuleDisabled(final PluginModuleDisabledEvent event) {
+        onModuleChanged(event.getModule());
+    }
+
+    /**
+     * Only permission overrides affect permissions; plugins enable and disable lots of other modules at startup and
+     * when they are installed.
+     */
+    private void onModuleChanged(final ModuleDescriptor<?> module) {
+        if (module instanceof ProjectPermissionOverrideModuleDescriptor) {
+            invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onGroupMembershipCreated(final GroupMembershipCreatedEvent event) {
+        onMembershipChanged(event.getMembershipType(), event.getEntityName());
+    }
+
+    @EventListener
+    public void onGroupMembershipsCreated(final GroupMembershipsCreatedEvent event) {
+        onMembershipChanged(event.getMembershipType(), event.getEntityNames());
+    }
+
+    @EventListener
+    public void onGroupMembershipDeleted(final GroupMembershipDeletedEvent event) {
+        onMembershipChanged(event.getMembershipType(), event.getEntityName());
+    }
+
+    /**
+     * The members of the group aren't known any more, and its memberships are deleted without events of their own.
+     */
+    @EventListener
+    public void onGroupDeleted(final GroupDeletedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Covers deactivation, which doesn't touch memberships but takes all permissions of the user away.
+     */
+    @EventListener
+    public void onUserUpdated(final UserUpdatedEvent event) {
+        invalidateUser(event.getUser().getName());
+    }
+
+    @EventListener
+    public void onUserDeleted(final UserDeletedEvent event) {
+        invalidateUser(event.getUsername());
+    }
+
+    private void onMembershipChanged(final MembershipType membershipType, final String username) {
+        if (membershipType == MembershipType.GROUP_USER) {
+            invalidateUser(username);
+        } else {
+            invalidateAll();
+        }
+    }
+
+    private void onMembershipChanged(final MembershipType membershipType, final Collection<String> usernames) {
+        if (membershipType == MembershipType.GROUP_USER) {
+            usernames.forEach(this::invalidateUser);
+        } else {
+            invalidateAll();
+        }
+    }
+
+    private static int stripe(@Nullable final String lowerCaseUsername) {
+        return lowerCaseUsername == null ? 0 : (lowerCaseUsername.hashCode() & 0x7fffffff) % USER_STRIPES;
+    }
+
+    /**
+     * Notified when results become stale, so that caches can drop them eagerly.
+     */
+    public interface Listener {
+        /**
+         * Results of all users are stale.
+         */
+        void allInvalidated();
+
+        /**
+         * Results of the user are stale.
+         *
+         * @param lowerCaseUsername Lower case username of the user
+         */
+        void userInvalidated(@Nullable String lowerCaseUsername);
+    }
+
+    /**
+     * Version of the permission configuration for a single user.
+     */
+    public static final class Version {
+        private final long global;
+        private final long user;
+
+        private Version(final long global, final long user) {
+            this.global = global;
+            this.user = user;
+        }
+
+        /**
+         * @return whether this version was taken after the other one, for the same user
+         */
+        public boolean isAfter(@Nonnull final Version other) {
+            return global > other.global || (global == other.global && user > other.user);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Version version = (Version) o;
+            return global == version.global && user == version.user;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(global) + Long.hashCode(user);
+        }
+
+        @Override
+        public String toString() {
+            return global + "." + user;
+        }
+    }
+}
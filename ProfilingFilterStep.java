@@ -0,0 +1,58 @@
+package com.atlassian.jira.web.filters.steps;
+
+import com.atlassian.annotations.Internal;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * {@link FilterStep} that records the time and allocation of another step in a {@link FilterStepProfiler}.
+ *
+ * Both phases of the step are recorded separately, as {@code <step>:before} and {@code <step>:after}.
+ *
+ * @since 9.12
+ */
+@Internal
+public class ProfilingFilterStep implements FilterStep {
+    private final FilterStep delegate;
+    private final FilterStepProfiler profiler;
+    private final String beforeName;
+    private final String afterName;
+
+    public ProfilingFilterStep(final FilterStep delegate, final FilterStepProfiler profiler) {
+        this.delegate = delegate;
+        this.profiler = profiler;
+        final String stepName = stepName(delegate.getClass());
+        this.beforeName = stepName + ":before";
+        this.afterName = stepName + ":after";
+    }
+
+    /**
+     * Anonymous classes have an empty simple name, their steps would all be recorded under the same name.
+     */
+    static String stepName(final Class<?> stepClass) {
+        final String simpleName = stepClass.getSimpleName();
+        return simpleName.isEmpty() ? stepClass.getName() : simpleName;
+    }
+
+    /**
+     * @return the step itself when profiling is disabled, otherwise the step wrapped in a {@link ProfilingFilterStep}
+     */
+    public static FilterStep wrap(final FilterStep step, final FilterStepProfiler profiler) {
+        return profiler.isEnabled() ? new ProfilingFilterStep(step, profiler) : step;
+    }
+
+    @Override
+    public FilterCallContext beforeDoFilter(final FilterCallContext callContext) throws IOException, ServletException {
+        try (FilterStepProfiler.Sample ignored = profiler.start(beforeName, callContext.getHttpServletRequest())) {
+            return delegate.beforeDoFilter(callContext);
+        }
+    }
+
+    @Override
+    public FilterCallContext finallyAfterDoFilter(final FilterCallContext callContext) {
+        try (FilterStepProfiler.Sample ignored = profiler.start(afterName, callContext.getHttpServletRequest())) {
+            return delegate.finallyAfterDoFilter(callContext);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.util.profiling.Metrics;
+import com.atlassian.util.profiling.Ticker;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Protects permission checks from {@link ProjectPermissionOverride}s that are slow or broken.
+ *
+ * Overrides are called synchronously on the request thread, so a single override waiting on e.g. a remote service
+ * slows down every page. Every call made through {@link #hasPermission(String, ProjectPermissionOverride, ProjectPermissionKey, Project, ApplicationUser)}
+ * is timed; a call that takes longer than the time budget or throws counts as a failure. After a number of
+ * consecutive failures the breaker of that override opens: for a while the override isn't called at all and
+ * {@link ProjectPermissionOverride.Decision#ABSTAIN} is used instead. Once the open period is over a single call is let
+ * through, and the breaker closes again if it succeeds.
+ *
+ * A call can't be interrupted, so the decision of a call that took too long is still used; the budget only decides
+ * whether the following calls are made at all.
+ *
+ * Note that this fails open: while the breaker of an override that denies access is open, or when the override
+ * throws, its {@link ProjectPermissionOverride.Decision#DENY} is lost and the permission is decided by the permission
+ * schemes alone. Failures are therefore logged at warn level, at most once per {@value #FAILURE_LOG_INTERVAL_SECONDS} s
+ * for each override with the number of failures not logged in between, and breakers opening and closing are always
+ * logged.
+ *
+ * Latencies of each override are published as the {@value #CHECK_TIMER} timer and kept in a coarse histogram that,
+ * together with the breaker state, is available from {@link #getStatuses()} for the administration pages.
+ *
+ * @since 9.12
+ */
+@Internal
+public class ProjectPermissionOverrideCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(ProjectPermissionOverrideCircuitBreaker.class);
+
+    static final String CHECK_TIMER = "jira.permission.override.check";
+
+    static final String BUDGET_MILLIS_PROPERTY = "jira.permission.override.budget.millis";
+    static final String FAILURE_THRESHOLD_PROPERTY = "jira.permission.override.breaker.failures";
+    static final String OPEN_SECONDS_PROPERTY = "jira.permission.override.breaker.open.seconds";
+
+    private static final int DEFAULT_BUDGET_MILLIS = 100;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final int DEFAULT_OPEN_SECONDS = 60;
+
+    static final long FAILURE_LOG_INTERVAL_SECONDS = 60;
+
+    /**
+     * Upper bounds of the latency histogram buckets, the last bucket holds everything slower.
+     */
+    private static final long[] LATENCY_BUCKETS_MILLIS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final long budgetNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+    private final Map<String, OverrideState> states = new ConcurrentHashMap<>();
+
+    public ProjectPermissionOverrideCircuitBreaker() {
+        this(JiraSystemProperties.getInstance().getInteger(BUDGET_MILLIS_PROPERTY, DEFAULT_BUDGET_MILLIS),
+                JiraSystemProperties.getInstance().getInteger(FAILURE_THRESHOLD_PROPERTY, DEFAULT_FAILURE_THRESHOLD),
+                JiraSystemProperties.getInstance().getInteger(OPEN_SECONDS_PROPERTY, DEFAULT_OPEN_SECONDS),
+                System::nanoTime);
+    }
+
+    ProjectPermissionOverrideCircuitBreaker(final long budgetMillis, final int failureThreshold, final long openSeconds,
+                                            final LongSupplier nanoTime) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Same as {@link ProjectPermissionOverride#hasPermission(ProjectPermissionKey, Project, ApplicationUser)}, unless
+     * the breaker of the override is open or the override throws, in which case the override abstains, even if it
+     * would have denied access.
+     *
+     * @param moduleKey            Complete key of the module providing the override
+     * @param override             The override
+     * @param projectPermissionKey Checked permission
+     * @param project              Project the permission is checked for
+     * @param user                 User the permission is checked for, {@code null} for anonymous
+     * @return decision of the override
+     */
+    @Nonnull
+    public ProjectPermissionOverride.Decision hasPermission(@Nonnull final String moduleKey, @Nonnull final ProjectPermissionOverride override,
+                                                            final ProjectPermissionKey projectPermissionKey, final Project project,
+                                                            @Nullable final ApplicationUser user) {
+        final OverrideState state = states.computeIfAbsent(moduleKey, OverrideState::new);
+        final long start = nanoTime.getAsLong();
+        if (!state.allowCall(start)) {
+            state.shortCircuits.increment();
+            return ProjectPermissionOverride.Decision.ABSTAIN;
+        }
+        try (Ticker ignored = Metrics.metric(CHECK_TIMER).tag("moduleKey", moduleKey).startTimer()) {
+            final ProjectPermissionOverride.Decision decision = override.hasPermission(projectPermissionKey, project, user);
+            final long elapsed = nanoTime.getAsLong() - start;
+            state.recordLatency(elapsed);
+            if (elapsed > budgetNanos) {
+                state.recordFailure(start, "took " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+            } else {
+                state.recordSuccess();
+            }
+            return decision == null ? ProjectPermissionOverride.Decision.ABSTAIN : decision;
+        } catch (RuntimeException e) {
+            state.recordLatency(nanoTime.getAsLong() - start);
+            state.logFailure(start, e);
+            state.recordFailure(start, e.toString());
+            return ProjectPermissionOverride.Decision.ABSTAIN;
+        }
+    }
+
+    /**
+     * Closes the breaker of the override and forgets its statistics, e.g. after the providing plugin was updated.
+     *
+     * @param moduleKey Complete key of the module providing the override
+     */
+    public void reset(@Nonnull final String moduleKey) {
+        states.remove(moduleKey);
+    }
+
+    /**
+     * @return state of every override called so far, ordered by module key
+     */
+    @Nonnull
+    public List<OverrideStatus> getStatuses() {
+        final long now = nanoTime.getAsLong();
+        return states.values().stream()
+                .map(state -> state.toStatus(now))
+                .sorted((a, b) -> a.getModuleKey().compareTo(b.getModuleKey()))
+                .collect(toList());
+    }
+
+    /**
+     * @return upper bounds of the buckets of {@link OverrideStatus#getLatencyHistogram()}, in milliseconds; the
+     * histogram has one more bucket for slower calls
+     */
+    @Nonnull
+    public static List<Long> getLatencyBucketsMillis() {
+        final ImmutableList.Builder<Long> buckets = ImmutableList.builder();
+        for (final long bucket : LATENCY_BUCKETS_MILLIS) {
+            buckets.add(bucket);
+        }
+        return buckets.build();
+    }
+
+    private final class OverrideState {
+        private final String moduleKey;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder shortCircuits = new LongAdder();
+        private final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS_MILLIS.length + 1];
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        /**
+         * {@link System#nanoTime()} until which the override isn't called, only meaningful when {@link #open} is set.
+         */
+        private final AtomicLong openUntil = new AtomicLong();
+        /**
+         * {@link System#nanoTime()} of the last logged exception, {@code null} if none was logged yet.
+         */
+        private final AtomicReference<Long> lastLogged = new AtomicReference<>();
+        private final LongAdder unloggedFailures = new LongAdder();
+        private volatile boolean open;
+        private volatile String lastFailure;
+
+        private OverrideState(final String moduleKey) {
+            this.moduleKey = moduleKey;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LongAdder();
+            }
+        }
+
+        private boolean allowCall(final long now) {
+            if (!open) {
+                return true;
+            }
+            final long until = openUntil.get();
+            // once the open period is over, a single caller gets to probe the override
+            return now - until >= 0 && openUntil.compareAndSet(until, now + openNanos);
+        }
+
+        private void recordLatency(final long nanos) {
+            calls.increment();
+            final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MILLIS.length && millis > LATENCY_BUCKETS_MILLIS[bucket]) {
+                bucket++;
+            }
+            latencies[bucket].increment();
+        }
+
+        private void logFailure(final long now, final RuntimeException e) {
+            final Long logged = lastLogged.get();
+            if ((logged == null || now - logged >= TimeUnit.SECONDS.toNanos(FAILURE_LOG_INTERVAL_SECONDS))
+                    && lastLogged.compareAndSet(logged, now)) {
+                log.warn("Permission override '{}' failed and abstains, so any access it denies is granted; {} more failures since last logged",
+                        moduleKey, unloggedFailures.sumThenReset(), e);
+            } else {
+                unloggedFailures.increment();
+                log.debug("Permission override '{}' failed", moduleKey, e);
+            }
+        }
+
+        private void recordSuccess() {
+            consecutiveFailures.set(0);
+            if (open) {
+                open = false;
+                log.warn("Permission override '{}' recovered, it is called again", moduleKey);
+            }
+        }
+
+        private void recordFailure(final long now, final String failure) {
+            failures.increment();
+            lastFailure = failure;
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                openUntil.set(now + openNanos);
+                if (!open) {
+                    open = true;
+                    log.warn("Permission override '{}' failed {} times in a row (last: {}), it won't be called for the next {} s",
+                            moduleKey, failureThreshold, failure, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+                }
+            }
+        }
+
+        private OverrideStatus toStatus(final long now) {
+            final ImmutableList.Builder<Long> histogram = ImmutableList.builder();
+            for (final LongAdder latency : latencies) {
+                histogram.add(latency.sum());
+            }
+            return new OverrideStatus(moduleKey, open && now - openUntil.get() < 0, calls.sum(), failures.sum(),
+                    shortCircuits.sum(), lastFailure, histogram.build());
+        }
+    }
+
+    /**
+     * Point in time view of the breaker of a single override.
+     */
+    public static class OverrideStatus {
+        private final String moduleKey;
+        private final boolean open;
+        private final long calls;
+        private final long failures;
+        private final long shortCircuits;
+        private final String lastFailure;
+        private final List<Long> latencyHistogram;
+
+        OverrideStatus(final String moduleKey, final boolean open, final long calls, final long failures,
+                       final long shortCircuits, final String lastFailure, final List<Long> latencyHistogram) {
+            this.moduleKey = moduleKey;
+            this.open = open;
+            this.calls = calls;
+            this.failures = failures;
+            this.shortCircuits = shortCircuits;
+            this.lastFailure = lastFailure;
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        public String getModuleKey() {
+            return moduleKey;
+        }
+
+        /**
+         * @return whether the override is currently skipped
+         */
+        public boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * @return number of calls that reached the override
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * @return number of calls that threw or exceeded the time budget
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return number of checks answered with {@link ProjectPermissionOverride.Decision#ABSTAIN} without calling the override
+         */
+        public long getShortCircuits() {
+            return shortCircuits;
+        }
+
+        @Nullable
+        public String getLastFailure() {
+            return lastFailure;
+        }
+
+        /**
+         * @return number of calls in each latency bucket, see {@link #getLatencyBucketsMillis()}
+         */
+        public List<Long> getLatencyHistogram() {
+            return latencyHistogram;
+        }
+
+        @Override
+        public String toString() {
+            return moduleKey + (open ? " (open)" : "") + ": calls=" + calls + ", failures=" + failures
+                    + ", shortCircuits=" + shortCircuits;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.cache.request.RequestCache;
+import com.atlassian.jira.cache.request.RequestCacheFactory;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.atlassian.jira.user.ApplicationUsers.getKeyFor;
+
+/**
+ * Request scoped memo of {@link ProjectPermissionOverride} decisions.
+ *
+ * A page such as the issue navigator checks the same few permissions for the same projects and user over and over.
+ * Each enabled override is asked at most once per request for a given module, permission key, project and user;
+ * later checks reuse its decision. Outside of a request nothing is cached and every check reaches the override.
+ *
+ * The number of calls that actually reached an override in the current request is available from
+ * {@link #getInvocationCount()} for diagnostics. Outside of a request there is nothing to count per request, so
+ * those calls show up only in {@link #getTotalInvocationCount()}, which counts since startup.
+ *
+ * @since 9.12
+ */
+@Internal
+public class ProjectPermissionOverrideDecisionCache {
+    private static final String INVOCATIONS = "invocations";
+
+    private final RequestCache<DecisionKey, ProjectPermissionOverride.Decision> decisions;
+    private final RequestCache<String, LongAdder> requestInvocations;
+    private final LongAdder totalInvocations = new LongAdder();
+
+    public ProjectPermissionOverrideDecisionCache(final RequestCacheFactory requestCacheFactory) {
+        this.decisions = requestCacheFactory.createRequestCache(
+                ProjectPermissionOverrideDecisionCache.class.getName() + ".decisions", this::evaluate);
+        this.requestInvocations = requestCacheFactory.createRequestCache(
+                ProjectPermissionOverrideDecisionCache.class.getName() + ".invocations", key -> new LongAdder());
+    }
+
+    /**
+     * Same as {@link ProjectPermissionOverride#hasPermission(ProjectPermissionKey, Project, ApplicationUser)},
+     * memoized for the current request.
+     *
+     * @param moduleKey            Complete key of the module providing the override
+     * @param override             The override
+     * @param projectPermissionKey Checked permission
+     * @param project              Project the permission is checked for
+     * @param user                 User the permission is checked for, {@code null} for anonymous
+     * @return decision of the override
+     */
+    @Nonnull
+    public ProjectPermissionOverride.Decision hasPermission(@Nonnull final String moduleKey, @Nonnull final ProjectPermissionOverride override,
+                                                            final ProjectPermissionKey projectPermissionKey, final Project project,
+                                                            @Nullable final ApplicationUser user) {
+        return decisions.get(new DecisionKey(moduleKey, override, projectPermissionKey, project, user));
+    }
+
+    /**
+     * Reason of the decision {@link #hasPermission(String, ProjectPermissionOverride, ProjectPermissionKey, Project, ApplicationUser)}
+     * returns for the same arguments. Should be called only when the reason is actually shown.
+     *
+     * For an {@link ExplainableProjectPermissionOverride} the memoized decision is explained without evaluating it again.
+     */
+    public ProjectPermissionOverride.Reason getReason(@Nonnull final String moduleKey, @Nonnull final ProjectPermissionOverride override,
+                                                      final ProjectPermissionKey projectPermissionKey, final Project project,
+                                                      @Nullable final ApplicationUser user) {
+        if (override instanceof ExplainableProjectPermissionOverride) {
+            final ProjectPermissionOverride.Decision decision = hasPermission(moduleKey, override, projectPermissionKey, project, user);
+            return ((ExplainableProjectPermissionOverride) override).explain(decision, projectPermissionKey, project, user);
+        }
+        countInvocation();
+        return override.getReason(projectPermissionKey, project, user);
+    }
+
+    /**
+     * @return number of times overrides were actually called in the current request, 0 outside of a request
+     */
+    public long getInvocationCount() {
+        return requestInvocations.get(INVOCATIONS).sum();
+    }
+
+    /**
+     * @return number of times overrides were actually called since startup, in or outside of a request
+     */
+    public long getTotalInvocationCount() {
+        return totalInvocations.sum();
+    }
+
+    private void countInvocation() {
+        requestInvocations.get(INVOCATIONS).increment();
+        totalInvocations.increment();
+    }
+
+    private ProjectPermissionOverride.Decision evaluate(final DecisionKey key) {
+        countInvocation();
+        return key.override.hasPermission(key.projectPermissionKey, key.project, key.user);
+    }
+
+    /**
+     * Identifies a decision by module, permission, project id and user key. The override, project and user objects
+     * are carried along only to evaluate the decision and don't take part in equality.
+     */
+    private static final class DecisionKey {
+        private final String moduleKey;
+        private final ProjectPermissionKey projectPermissionKey;
+        private final Long projectId;
+        private final String userKey;
+        private final ProjectPermissionOverride override;
+        private final Project project;
+        private final ApplicationUser user;
+
+        private DecisionKey(final String moduleKey, final ProjectPermissionOverride override, final ProjectPermissionKey projectPermissionKey,
+                            final Project project, final ApplicationUser user) {
+            this.moduleKey = moduleKey;
+            this.projectPermissionKey = projectPermissionKey;
+            this.projectId = project == null ? null : project.getId();
+            this.userKey = getKeyFor(user);
+            this.override = override;
+            this.project = project;
+            this.user = user;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final DecisionKey that = (DecisionKey) o;
+            return moduleKey.equals(that.moduleKey)
+                    && Objects.equals(projectPermissionKey, that.projectPermissionKey)
+                    && Objects.equals(projectId, that.projectId)
+                    && Objects.equals(userKey, that.userKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(moduleKey, projectPermissionKey, projectId, userKey);
+        }
+    }
+}
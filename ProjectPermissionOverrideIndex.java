@@ -0,0 +1,70 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.annotations.Internal;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable lookup of the enabled {@link ProjectPermissionOverride}s that have to be asked for a permission key.
+ *
+ * Overrides implementing {@link ScopedProjectPermissionOverride} are listed only under the keys they declare, all
+ * other overrides under every key. The index is meant to be rebuilt whenever override modules are enabled or
+ * disabled; lookups are then a single map access without calling any plugin code.
+ *
+ * @param <T> Type of the indexed entries, e.g. module descriptors providing the overrides
+ * @since 9.12
+ */
+@Internal
+public class ProjectPermissionOverrideIndex<T> {
+    private final Map<ProjectPermissionKey, List<T>> scoped;
+    private final List<T> unscoped;
+
+    /**
+     * @param entries  Enabled overrides, in the order they should be asked
+     * @param override Extracts the override from an entry
+     */
+    public ProjectPermissionOverrideIndex(final Collection<T> entries, final Function<T, ProjectPermissionOverride> override) {
+        final ImmutableList.Builder<T> unscoped = ImmutableList.builder();
+        final Map<ProjectPermissionKey, ImmutableList.Builder<T>> scoped = new HashMap<>();
+        for (final T entry : entries) {
+            final ProjectPermissionOverride projectPermissionOverride = override.apply(entry);
+            if (projectPermissionOverride instanceof ScopedProjectPermissionOverride) {
+                // keys are collected first so that every list keeps the order of the entries
+                for (final ProjectPermissionKey key : ((ScopedProjectPermissionOverride) projectPermissionOverride).getAffectedPermissionKeys()) {
+                    scoped.putIfAbsent(key, ImmutableList.builder());
+                }
+            }
+        }
+        for (final T entry : entries) {
+            final ProjectPermissionOverride projectPermissionOverride = override.apply(entry);
+            if (projectPermissionOverride instanceof ScopedProjectPermissionOverride) {
+                for (final ProjectPermissionKey key : ((ScopedProjectPermissionOverride) projectPermissionOverride).getAffectedPermissionKeys()) {
+                    scoped.get(key).add(entry);
+                }
+            } else {
+                unscoped.add(entry);
+                scoped.values().forEach(list -> list.add(entry));
+            }
+        }
+        final ImmutableMap.Builder<ProjectPermissionKey, List<T>> index = ImmutableMap.builder();
+        scoped.forEach((key, list) -> index.put(key, list.build()));
+        this.scoped = index.build();
+        this.unscoped = unscoped.build();
+    }
+
+    /**
+     * @param projectPermissionKey Checked permission
+     * @return overrides that have to be asked for the permission, in their original order
+     */
+    @Nonnull
+    public List<T> getOverrides(final ProjectPermissionKey projectPermissionKey) {
+        return scoped.getOrDefault(projectPermissionKey, unscoped);
+    }
+}
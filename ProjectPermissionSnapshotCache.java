@@ -0,0 +1,73 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.util.dbc.Assertions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Holds the latest {@link ProjectPermissionSnapshot} of each user.
+ *
+ * A snapshot is built on the first permission check of a user and replaced as a whole, never modified, so readers
+ * only ever see a complete matrix. Snapshots are kept up to date by {@link UserPermissionCache}: every change that may
+ * affect project permissions, including enabling or disabling permission overrides, makes all snapshots stale, group
+ * membership changes of a user only that user's snapshot. At most {@value #MAX_USERS_PROPERTY} snapshots are kept,
+ * and snapshots of users that haven't checked a permission for a while expire.
+ *
+ * Snapshots are optional, they are only used when {@value #ENABLED_PROPERTY} is set.
+ *
+ * @since 9.12
+ */
+@Internal
+public class ProjectPermissionSnapshotCache {
+    static final String ENABLED_PROPERTY = "jira.permission.snapshot.enabled";
+
+    static final String MAX_USERS_PROPERTY = "jira.permission.snapshot.max.users";
+
+    private static final int DEFAULT_MAX_USERS = 10_000;
+
+    private static final Duration EXPIRE_AFTER_ACCESS = Duration.ofMinutes(30);
+
+    private final boolean enabled;
+
+    private final UserPermissionCache<ProjectPermissionSnapshot> snapshots;
+
+    public ProjectPermissionSnapshotCache(final PermissionVersions versions) {
+        this(versions, JiraSystemProperties.getInstance().getBoolean(ENABLED_PROPERTY),
+                JiraSystemProperties.getInstance().getInteger(MAX_USERS_PROPERTY, DEFAULT_MAX_USERS));
+    }
+
+    ProjectPermissionSnapshotCache(final PermissionVersions versions, final boolean enabled, final int maxUsers) {
+        this.enabled = enabled;
+        this.snapshots = new UserPermissionCache<>(versions, maxUsers, snapshot -> 1, EXPIRE_AFTER_ACCESS);
+    }
+
+    /**
+     * @return whether permission checks should be answered from snapshots
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the up to date snapshot of the user, building it if there is none.
+     *
+     * @param user            User to get the snapshot of, {@code null} for anonymous
+     * @param snapshotBuilder Builds the snapshot of the user for the current permission configuration
+     * @return snapshot of the user
+     */
+    @Nonnull
+    public ProjectPermissionSnapshot getSnapshot(@Nullable final ApplicationUser user, @Nonnull final Supplier<ProjectPermissionSnapshot> snapshotBuilder) {
+        Assertions.notNull("snapshotBuilder", snapshotBuilder);
+        return snapshots.get(user, snapshotBuilder);
+    }
+
+    long size() {
+        return snapshots.size();
+    }
+}
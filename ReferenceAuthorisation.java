@@ -1,12 +1,13 @@
 package com.atlassian.jira.dev.reference.plugin.security.auth;
 
-import com.atlassian.jira.security.auth.Authorisation;
+import com.atlassian.jira.security.auth.CacheableAuthorisation;
 import com.atlassian.jira.user.ApplicationUser;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
 import java.util.Set;
 
 import static com.atlassian.jira.security.auth.Authorisation.Decision.ABSTAIN;
@@ -17,7 +18,21 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
  */
-public class ReferenceAuthorisation implements Authorisation {
+public class ReferenceAuthorisation implements CacheableAuthorisation {
+    private static final Set<String> CACHE_KEY_PARAMETERS = ImmutableSet.of("referenceAuthLogin", "referenceAuthRole", "referenceAuthAnswer");
+
+    @Nonnull
+    @Override
+    public Set<CacheKeyDimension> getCacheKeyDimensions() {
+        return ImmutableSet.of();
+    }
+
+    @Nonnull
+    @Override
+    public Set<String> getCacheKeyParameters() {
+        return CACHE_KEY_PARAMETERS;
+    }
+
     @Override
     public Decision authoriseForLogin(@Nonnull ApplicationUser user, HttpServletRequest httpServletRequest) {
         String webParam = httpServletRequest.getParameter("referenceAuthLogin");
@@ -33,12 +48,8 @@ public class ReferenceAuthorisation implements Authorisation {
 
     @Override
     public Set<String> getRequiredRoles(HttpServletRequest httpServletRequest) {
-        Set<String> requiredRoles = Sets.newHashSet();
         String webParam = httpServletRequest.getParameter("referenceAuthRole");
-        if (!isBlank(webParam)) {
-            requiredRoles.add(webParam);
-        }
-        return requiredRoles;
+        return isBlank(webParam) ? Collections.emptySet() : Collections.singleton(webParam);
     }
 
     @Override
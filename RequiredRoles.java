@@ -0,0 +1,52 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.annotations.Internal;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Merges the roles required by several {@link Authorisation}s.
+ *
+ * Most requests require no role at all and most providers return the same shared empty or singleton set for every
+ * request, so the sets are merged lazily: a set is reused as the result as long as it contains everything required
+ * so far, and a new set is only created when two providers require different roles.
+ *
+ * @since 9.12
+ */
+@Internal
+public final class RequiredRoles {
+    private RequiredRoles() {
+    }
+
+    /**
+     * @param authorisations Providers to ask
+     * @param request        The request
+     * @return roles required by any of the providers; shared, must not be modified
+     */
+    @Nonnull
+    public static Set<String> of(@Nonnull final Iterable<? extends Authorisation> authorisations, final HttpServletRequest request) {
+        Set<String> requiredRoles = Collections.emptySet();
+        for (final Authorisation authorisation : authorisations) {
+            requiredRoles = merge(requiredRoles, authorisation.getRequiredRoles(request));
+        }
+        return requiredRoles;
+    }
+
+    /**
+     * @return union of both sets, which is one of the given sets whenever possible; must not be modified
+     */
+    @Nonnull
+    public static Set<String> merge(@Nonnull final Set<String> first, final Set<String> second) {
+        if (second == null || second.isEmpty() || first.containsAll(second)) {
+            return first;
+        }
+        if (first.isEmpty() || second.containsAll(first)) {
+            return second;
+        }
+        return ImmutableSet.<String>builder().addAll(first).addAll(second).build();
+    }
+}
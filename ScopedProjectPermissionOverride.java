@@ -0,0 +1,27 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.annotations.ExperimentalSpi;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+
+/**
+ * {@link ProjectPermissionOverride} that only ever decides some permissions.
+ *
+ * Jira doesn't call the override at all when checking any other permission, so e.g. an override that can only
+ * deny {@code EDIT_ISSUES} doesn't slow down the {@code BROWSE_PROJECTS} checks done for every issue in the issue
+ * navigator. For any permission key not in {@link #getAffectedPermissionKeys()} the override is assumed to
+ * {@link Decision#ABSTAIN}.
+ *
+ * @since 9.12
+ */
+@ExperimentalSpi
+public interface ScopedProjectPermissionOverride extends ProjectPermissionOverride {
+    /**
+     * Must not change while the override is enabled.
+     *
+     * @return permissions this override may return something else than {@link Decision#ABSTAIN} for
+     */
+    @Nonnull
+    Set<ProjectPermissionKey> getAffectedPermissionKeys();
+}
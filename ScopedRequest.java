@@ -0,0 +1,81 @@
+package com.atlassian.jira.security.auth;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * View of a request for {@link Authorisation}s evaluated outside of the request thread by
+ * {@link ParallelAuthorisationEvaluator}, valid only while the evaluation is running.
+ *
+ * Every call is forwarded to the request, so providers see exactly what they would see on the request thread and
+ * nothing is read that no provider asks for, e.g. the body of a form post. The request thread only waits while the
+ * evaluation is running; calls are made one at a time, as the container request isn't thread safe.
+ *
+ * A provider that missed the deadline may still be running when the request completes and the container recycles the
+ * request, so once the evaluation is {@link #close() closed} every call throws {@link IllegalStateException}. Objects
+ * a provider obtained from the request before, e.g. the session, stay usable.
+ *
+ * @since 9.12
+ */
+final class ScopedRequest implements InvocationHandler, AutoCloseable {
+    private final HttpServletRequest request;
+    private final HttpServletRequest proxy;
+    private boolean closed;
+
+    private ScopedRequest(final HttpServletRequest request) {
+        this.request = request;
+        this.proxy = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, this);
+    }
+
+    /**
+     * @param request The request, must be called on the request thread
+     * @return scope of the request for one evaluation
+     */
+    @Nonnull
+    static ScopedRequest of(@Nonnull final HttpServletRequest request) {
+        return new ScopedRequest(request);
+    }
+
+    /**
+     * @return the request as seen by the providers
+     */
+    @Nonnull
+    HttpServletRequest getRequest() {
+        return proxy;
+    }
+
+    /**
+     * Ends the evaluation, later calls of the providers fail.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+
+    @Override
+    public synchronized Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ScopedRequest[" + (closed ? "closed" : request) + "]";
+            default:
+                if (closed) {
+                    throw new IllegalStateException("HttpServletRequest." + method.getName()
+                            + " called after the authorisation evaluation ended");
+                }
+                try {
+                    return method.invoke(request, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+        }
+    }
+}
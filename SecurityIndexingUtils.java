@@ -1,12 +1,30 @@
 package com.atlassian.jira.issue.index;
 
 import com.atlassian.annotations.Internal;
+import com.atlassian.jira.config.properties.JiraSystemProperties;
 import com.atlassian.jira.issue.Issue;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.UnicodeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.atlassian.jira.issue.fields.FieldManager.CUSTOM_FIELD_PREFIX;
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_ASSIGNEE;
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_AUTHOR;
 import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
 import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
 
@@ -23,12 +41,63 @@ import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIO
  * </ul>
  *
  * Each field which can be used in project security scheme or issue security scheme (i.e. one that is a user or group field)
- * has to be indexed with {@link #indexPermissions(Document, Issue, String, String)}.
+ * has to be indexed with {@link #indexPermissions(Document, Issue, String, String)}, or through a
+ * {@link PermissionTermAccumulator} when many fields of the same issue are indexed.
+ *
+ * The field contents are written in one of the {@link TermFormat}s. The format used for indexing is selected with the
+ * {@value #TERM_FORMAT_PROPERTY} system property. While the index is being rebuilt in a different format,
+ * {@value #TERM_FORMAT_MIGRATION_PROPERTY} makes {@link #getQueryTermFormats()} return both formats. Permission
+ * queries have to be built from the {@code generate*QueryContents} methods, which return the content in each of
+ * those formats, so that they match documents written in either of them. The other {@code generate*} methods
+ * return the content in the indexing format only.
  *
  * @since 8.0
  */
 @Internal
 public class SecurityIndexingUtils {
+    private static final Logger log = LoggerFactory.getLogger(SecurityIndexingUtils.class);
+
+    /**
+     * Format in which the permission field contents are encoded.
+     *
+     * @since 9.12
+     */
+    public enum TermFormat {
+        /**
+         * Human readable UTF-8 contents, e.g. {@code p#10000#customfield_10100#admin}.
+         */
+        TEXT,
+        /**
+         * Binary contents: a one byte type tag, zig-zag varint ids, a varint field code and the UTF-8 field value.
+         * Type tags are below any printable character, so compact contents never clash with {@link #TEXT} ones
+         * and both can live in the same index field.
+         */
+        COMPACT
+    }
+
+    /**
+     * Kinds of permission field contents, in either {@link TermFormat}.
+     *
+     * @since 9.12
+     */
+    public enum ContentType {
+        /** {@code p#<project>} */
+        PROJECT,
+        /** {@code p#<project>#<field>#<value>} */
+        PROJECT_FIELD,
+        /** {@code s#<level>} */
+        SECURITY_LEVEL,
+        /** {@code s#<level>#p#<project>} */
+        SECURITY_LEVEL_PROJECT,
+        /** {@code s#<level>#<field>#<value>} */
+        SECURITY_LEVEL_FIELD,
+        /** Not a permission field content */
+        UNKNOWN
+    }
+
+    static final String TERM_FORMAT_PROPERTY = "jira.index.permissions.term.format";
+
+    static final String TERM_FORMAT_MIGRATION_PROPERTY = "jira.index.permissions.term.format.migration";
 
     /**
      * Used to concatenate parts of the permission field content.
@@ -39,11 +108,53 @@ public class SecurityIndexingUtils {
      * i.e. we control the prefix of the concatenated string. The string will always match the regex:
      * <pre>(p|s)#[0-9]+#(issue_assignee|issue_author|customfield_[0-9]+)#.*</pre>
      */
-    private static final String DELIMITER = "#";
+    private static final byte DELIMITER = '#';
+
+    private static final byte PROJECT_PREFIX = 'p';
+
+    private static final byte SECURITY_LEVEL_PREFIX = 's';
+
+    private static final byte COMPACT_PROJECT = 0x01;
+
+    private static final byte COMPACT_PROJECT_FIELD = 0x02;
+
+    private static final byte COMPACT_SECURITY_LEVEL = 0x03;
+
+    private static final byte COMPACT_SECURITY_LEVEL_PROJECT = 0x04;
+
+    private static final byte COMPACT_SECURITY_LEVEL_FIELD = 0x05;
+
+    /**
+     * Field codes of the {@link TermFormat#COMPACT} format. Custom fields are coded as
+     * {@code COMPACT_FIRST_CUSTOM_FIELD + custom field id}; any other field name is written literally after
+     * {@code COMPACT_LITERAL_FIELD}, prefixed with its length.
+     */
+    private static final long COMPACT_LITERAL_FIELD = 0;
+
+    private static final long COMPACT_ASSIGNEE_FIELD = 1;
+
+    private static final long COMPACT_AUTHOR_FIELD = 2;
+
+    private static final long COMPACT_FIRST_CUSTOM_FIELD = 3;
+
+    /**
+     * Overlong varint of 0, written for {@code null} ids of the {@link TermFormat#COMPACT} format.
+     */
+    private static final byte COMPACT_NULL_ID_FIRST_BYTE = (byte) 0x80;
+
+    private static final byte COMPACT_NULL_ID_SECOND_BYTE = 0x00;
 
-    private static final String PROJECT_PREFIX = "p";
+    private static final TermFormat INDEXING_FORMAT = readIndexingFormat();
 
-    private static final String SECURITY_LEVEL_PREFIX = "s";
+    private static final Set<TermFormat> QUERY_FORMATS = JiraSystemProperties.getInstance().getBoolean(TERM_FORMAT_MIGRATION_PROPERTY)
+            ? Collections.unmodifiableSet(EnumSet.allOf(TermFormat.class))
+            : Collections.unmodifiableSet(EnumSet.of(INDEXING_FORMAT));
+
+    /**
+     * Scratch buffer the permission field contents are encoded into. Terms are written straight into it as UTF-8,
+     * without building an intermediate {@link String}, and copied out into an exactly sized {@link BytesRef}.
+     */
+    private static final ThreadLocal<BytesRefBuilder> TERM_BUILDER = ThreadLocal.withInitial(BytesRefBuilder::new);
 
     /**
      * Index top level permissions - ones that depend only on the project and issue security level and not
@@ -79,7 +190,63 @@ public class SecurityIndexingUtils {
         final Long issueSecurityLevel = issue.getSecurityLevelId();
         indexProjectPermissionField(doc, generateProjectPermissionFieldContents(projectId, fieldName, fieldValue));
         if (issueSecurityLevel != null) {
-            indexIssueLevelPermissionField(doc, generateIssueLevelPermissionContents(issueSecurityLevel == null ? -1L : issueSecurityLevel, fieldName, fieldValue));
+            indexIssueLevelPermissionField(doc, generateIssueLevelPermissionContents(issueSecurityLevel, fieldName, fieldValue));
+        }
+    }
+
+    /**
+     * @return Format in which permission field contents are indexed on this node
+     * @since 9.12
+     */
+    public static TermFormat getIndexingFormat() {
+        return INDEXING_FORMAT;
+    }
+
+    /**
+     * Permission queries have to match a term in each of the returned formats. There is more than one only while
+     * the index is migrated from one format to the other.
+     *
+     * @return Formats in which permission field contents can be present in the index
+     * @since 9.12
+     */
+    public static Set<TermFormat> getQueryTermFormats() {
+        return QUERY_FORMATS;
+    }
+
+    /**
+     * @param content Permission field content in any {@link TermFormat}
+     * @return kind of the content
+     * @since 9.12
+     */
+    public static ContentType getContentType(final BytesRef content) {
+        if (content.length == 0) {
+            return ContentType.UNKNOWN;
+        }
+        switch (content.bytes[content.offset]) {
+            case COMPACT_PROJECT:
+                return ContentType.PROJECT;
+            case COMPACT_PROJECT_FIELD:
+                return ContentType.PROJECT_FIELD;
+            case COMPACT_SECURITY_LEVEL:
+                return ContentType.SECURITY_LEVEL;
+            case COMPACT_SECURITY_LEVEL_PROJECT:
+                return ContentType.SECURITY_LEVEL_PROJECT;
+            case COMPACT_SECURITY_LEVEL_FIELD:
+                return ContentType.SECURITY_LEVEL_FIELD;
+            case PROJECT_PREFIX:
+                return indexOfDelimiter(content, content.offset + 2) < 0 ? ContentType.PROJECT : ContentType.PROJECT_FIELD;
+            case SECURITY_LEVEL_PREFIX:
+                final int second = indexOfDelimiter(content, content.offset + 2);
+                if (second < 0) {
+                    return ContentType.SECURITY_LEVEL;
+                }
+                // field names are never "p", so "s#<level>#p#..." is always the project variant
+                final int end = content.offset + content.length;
+                return second + 2 < end && content.bytes[second + 1] == PROJECT_PREFIX && content.bytes[second + 2] == DELIMITER
+                        ? ContentType.SECURITY_LEVEL_PROJECT
+                        : ContentType.SECURITY_LEVEL_FIELD;
+            default:
+                return ContentType.UNKNOWN;
         }
     }
 
@@ -90,7 +257,23 @@ public class SecurityIndexingUtils {
      * @return          Permission field content for the project id
      */
     public static BytesRef generateProjectPermissionFieldContents(final Long projectId) {
-        return new BytesRef(PROJECT_PREFIX + DELIMITER + projectId);
+        return generateProjectPermissionFieldContents(INDEXING_FORMAT, projectId);
+    }
+
+    /**
+     * Same as {@link #generateProjectPermissionFieldContents(Long)}, encoded in the given format.
+     *
+     * @since 9.12
+     */
+    public static BytesRef generateProjectPermissionFieldContents(final TermFormat format, final Long projectId) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_PROJECT);
+            appendCompactId(builder, projectId);
+        } else {
+            appendId(builder, PROJECT_PREFIX, projectId);
+        }
+        return builder.toBytesRef();
     }
 
     /**
@@ -102,7 +285,70 @@ public class SecurityIndexingUtils {
      * @return           Permission field content for the value of the field in the specified project
      */
     public static BytesRef generateProjectPermissionFieldContents(final Long projectId, final String fieldName, final String fieldValue) {
-        return new BytesRef(PROJECT_PREFIX + DELIMITER + projectId + DELIMITER + fieldName + DELIMITER + fieldValue);
+        return generateProjectPermissionFieldContents(INDEXING_FORMAT, projectId, fieldName, fieldValue);
+    }
+
+    /**
+     * Same as {@link #generateProjectPermissionFieldContents(Long, String, String)}, encoded in the given format.
+     *
+     * @since 9.12
+     */
+    public static BytesRef generateProjectPermissionFieldContents(final TermFormat format, final Long projectId, final String fieldName, final String fieldValue) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_PROJECT_FIELD);
+            appendCompactId(builder, projectId);
+        } else {
+            appendId(builder, PROJECT_PREFIX, projectId);
+        }
+        appendFieldName(builder, format, fieldName);
+        appendChars(builder, fieldValue);
+        return builder.toBytesRef();
+    }
+
+    /**
+     * Generates {@link #generateProjectPermissionFieldContents(Long, String, String) project permission field contents}
+     * for all values of a field at once. The project and field part is encoded only once and reused for every value.
+     *
+     * The consumer receives a new {@link BytesRef} for each value and may generate other permission field contents
+     * itself.
+     *
+     * @param projectId   Id of the project for which we generate field content
+     * @param fieldName   Field name for which we generate permission field content
+     * @param fieldValues Values of the field for which we generate permission field content
+     * @param consumer    Receives permission field content for each of the values, in order
+     * @since 9.12
+     */
+    public static void generateProjectPermissionFieldContents(final Long projectId, final String fieldName, final Iterable<String> fieldValues,
+                                                              final Consumer<BytesRef> consumer) {
+        generateProjectPermissionFieldContents(INDEXING_FORMAT, projectId, fieldName, fieldValues, consumer);
+    }
+
+    /**
+     * Same as {@link #generateProjectPermissionFieldContents(Long, String, Iterable, Consumer)}, encoded in the given
+     * format.
+     *
+     * @since 9.12
+     */
+    public static void generateProjectPermissionFieldContents(final TermFormat format, final Long projectId, final String fieldName,
+                                                              final Iterable<String> fieldValues, final Consumer<BytesRef> consumer) {
+        generateForValues(generateProjectPermissionFieldPrefix(format, projectId, fieldName), fieldValues, consumer);
+    }
+
+    /**
+     * @return project and field part of {@link #generateProjectPermissionFieldContents(TermFormat, Long, String, String)},
+     * to be completed with {@link #generateForValues(BytesRef, Iterable, Consumer)}
+     */
+    static BytesRef generateProjectPermissionFieldPrefix(final TermFormat format, final Long projectId, final String fieldName) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_PROJECT_FIELD);
+            appendCompactId(builder, projectId);
+        } else {
+            appendId(builder, PROJECT_PREFIX, projectId);
+        }
+        appendFieldName(builder, format, fieldName);
+        return builder.toBytesRef();
     }
 
     /**
@@ -112,7 +358,23 @@ public class SecurityIndexingUtils {
      * @return                   Permission field content for the issue security level
      */
     public static BytesRef generateIssueLevelPermissionContents(final Long issueSecurityLevel) {
-        return new BytesRef(SECURITY_LEVEL_PREFIX + DELIMITER + issueSecurityLevel);
+        return generateIssueLevelPermissionContents(INDEXING_FORMAT, issueSecurityLevel);
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long)}, encoded in the given format.
+     *
+     * @since 9.12
+     */
+    public static BytesRef generateIssueLevelPermissionContents(final TermFormat format, final Long issueSecurityLevel) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_SECURITY_LEVEL);
+            appendCompactId(builder, issueSecurityLevel);
+        } else {
+            appendId(builder, SECURITY_LEVEL_PREFIX, issueSecurityLevel);
+        }
+        return builder.toBytesRef();
     }
 
     /**
@@ -123,7 +385,26 @@ public class SecurityIndexingUtils {
      * @return                   Permission field content for the issue security level and project
      */
     public static BytesRef generateIssueLevelPermissionContents(final Long issueSecurityLevel, final Long projectId) {
-        return new BytesRef(SECURITY_LEVEL_PREFIX + DELIMITER + issueSecurityLevel + DELIMITER + PROJECT_PREFIX + DELIMITER + projectId);
+        return generateIssueLevelPermissionContents(INDEXING_FORMAT, issueSecurityLevel, projectId);
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long, Long)}, encoded in the given format.
+     *
+     * @since 9.12
+     */
+    public static BytesRef generateIssueLevelPermissionContents(final TermFormat format, final Long issueSecurityLevel, final Long projectId) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_SECURITY_LEVEL_PROJECT);
+            appendCompactId(builder, issueSecurityLevel);
+            appendCompactId(builder, projectId);
+        } else {
+            appendId(builder, SECURITY_LEVEL_PREFIX, issueSecurityLevel);
+            builder.append(DELIMITER);
+            appendId(builder, PROJECT_PREFIX, projectId);
+        }
+        return builder.toBytesRef();
     }
 
     /**
@@ -135,7 +416,130 @@ public class SecurityIndexingUtils {
      * @return
      */
     public static BytesRef generateIssueLevelPermissionContents(final Long issueSecurityLevel, final String fieldName, final String fieldValue) {
-        return new BytesRef(SECURITY_LEVEL_PREFIX + DELIMITER + issueSecurityLevel + DELIMITER + fieldName + DELIMITER + fieldValue);
+        return generateIssueLevelPermissionContents(INDEXING_FORMAT, issueSecurityLevel, fieldName, fieldValue);
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long, String, String)}, encoded in the given format.
+     *
+     * @since 9.12
+     */
+    public static BytesRef generateIssueLevelPermissionContents(final TermFormat format, final Long issueSecurityLevel, final String fieldName, final String fieldValue) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_SECURITY_LEVEL_FIELD);
+            appendCompactId(builder, issueSecurityLevel);
+        } else {
+            appendId(builder, SECURITY_LEVEL_PREFIX, issueSecurityLevel);
+        }
+        appendFieldName(builder, format, fieldName);
+        appendChars(builder, fieldValue);
+        return builder.toBytesRef();
+    }
+
+    /**
+     * Generates {@link #generateIssueLevelPermissionContents(Long, String, String) issue security level permission
+     * field contents} for all values of a field at once, see
+     * {@link #generateProjectPermissionFieldContents(Long, String, Iterable, Consumer)}.
+     *
+     * @param issueSecurityLevel Id of the issue security level for which we generate field content
+     * @param fieldName          Field name for which we generate permission field content
+     * @param fieldValues        Values of the field for which we generate permission field content
+     * @param consumer           Receives permission field content for each of the values, in order
+     * @since 9.12
+     */
+    public static void generateIssueLevelPermissionContents(final Long issueSecurityLevel, final String fieldName, final Iterable<String> fieldValues,
+                                                            final Consumer<BytesRef> consumer) {
+        generateIssueLevelPermissionContents(INDEXING_FORMAT, issueSecurityLevel, fieldName, fieldValues, consumer);
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long, String, Iterable, Consumer)}, encoded in the given
+     * format.
+     *
+     * @since 9.12
+     */
+    public static void generateIssueLevelPermissionContents(final TermFormat format, final Long issueSecurityLevel, final String fieldName,
+                                                            final Iterable<String> fieldValues, final Consumer<BytesRef> consumer) {
+        generateForValues(generateIssueLevelPermissionFieldPrefix(format, issueSecurityLevel, fieldName), fieldValues, consumer);
+    }
+
+    /**
+     * @return issue security level and field part of
+     * {@link #generateIssueLevelPermissionContents(TermFormat, Long, String, String)}, to be completed with
+     * {@link #generateForValues(BytesRef, Iterable, Consumer)}
+     */
+    static BytesRef generateIssueLevelPermissionFieldPrefix(final TermFormat format, final Long issueSecurityLevel, final String fieldName) {
+        final BytesRefBuilder builder = termBuilder();
+        if (format == TermFormat.COMPACT) {
+            builder.append(COMPACT_SECURITY_LEVEL_FIELD);
+            appendCompactId(builder, issueSecurityLevel);
+        } else {
+            appendId(builder, SECURITY_LEVEL_PREFIX, issueSecurityLevel);
+        }
+        appendFieldName(builder, format, fieldName);
+        return builder.toBytesRef();
+    }
+
+    /**
+     * Same as {@link #generateProjectPermissionFieldContents(Long)}, in each of the {@link #getQueryTermFormats()}.
+     * Permission queries have to match any of the returned contents.
+     *
+     * @since 9.12
+     */
+    public static List<BytesRef> generateProjectPermissionQueryContents(final Long projectId) {
+        return generateQueryContents(QUERY_FORMATS, format -> generateProjectPermissionFieldContents(format, projectId));
+    }
+
+    /**
+     * Same as {@link #generateProjectPermissionFieldContents(Long, String, String)}, in each of the
+     * {@link #getQueryTermFormats()}. Permission queries have to match any of the returned contents.
+     *
+     * @since 9.12
+     */
+    public static List<BytesRef> generateProjectPermissionQueryContents(final Long projectId, final String fieldName, final String fieldValue) {
+        return generateQueryContents(QUERY_FORMATS, format -> generateProjectPermissionFieldContents(format, projectId, fieldName, fieldValue));
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long)}, in each of the {@link #getQueryTermFormats()}.
+     * Permission queries have to match any of the returned contents.
+     *
+     * @since 9.12
+     */
+    public static List<BytesRef> generateIssueLevelPermissionQueryContents(final Long issueSecurityLevel) {
+        return generateQueryContents(QUERY_FORMATS, format -> generateIssueLevelPermissionContents(format, issueSecurityLevel));
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long, Long)}, in each of the {@link #getQueryTermFormats()}.
+     * Permission queries have to match any of the returned contents.
+     *
+     * @since 9.12
+     */
+    public static List<BytesRef> generateIssueLevelPermissionQueryContents(final Long issueSecurityLevel, final Long projectId) {
+        return generateQueryContents(QUERY_FORMATS, format -> generateIssueLevelPermissionContents(format, issueSecurityLevel, projectId));
+    }
+
+    /**
+     * Same as {@link #generateIssueLevelPermissionContents(Long, String, String)}, in each of the
+     * {@link #getQueryTermFormats()}. Permission queries have to match any of the returned contents.
+     *
+     * @since 9.12
+     */
+    public static List<BytesRef> generateIssueLevelPermissionQueryContents(final Long issueSecurityLevel, final String fieldName, final String fieldValue) {
+        return generateQueryContents(QUERY_FORMATS, format -> generateIssueLevelPermissionContents(format, issueSecurityLevel, fieldName, fieldValue));
+    }
+
+    static List<BytesRef> generateQueryContents(final Set<TermFormat> formats, final Function<TermFormat, BytesRef> generator) {
+        if (formats.size() == 1) {
+            return Collections.singletonList(generator.apply(formats.iterator().next()));
+        }
+        final List<BytesRef> contents = new ArrayList<>(formats.size());
+        for (final TermFormat format : formats) {
+            contents.add(generator.apply(format));
+        }
+        return contents;
     }
 
     //adding fields
@@ -146,4 +550,163 @@ public class SecurityIndexingUtils {
     private static void indexProjectPermissionField(final Document doc, final BytesRef value) {
         doc.add(new StringField(PROJECT_PERMISSIONS_FIELD, value, Field.Store.NO));
     }
+
+    private static TermFormat readIndexingFormat() {
+        final String format = JiraSystemProperties.getInstance().getProperty(TERM_FORMAT_PROPERTY, TermFormat.TEXT.name());
+        try {
+            return TermFormat.valueOf(format.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown permission term format '{}' set in {}, falling back to {}", format, TERM_FORMAT_PROPERTY, TermFormat.TEXT);
+            return TermFormat.TEXT;
+        }
+    }
+
+    private static int indexOfDelimiter(final BytesRef content, final int from) {
+        for (int i = from; i < content.offset + content.length; i++) {
+            if (content.bytes[i] == DELIMITER) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //encoding
+    private static BytesRefBuilder termBuilder() {
+        final BytesRefBuilder builder = TERM_BUILDER.get();
+        builder.clear();
+        return builder;
+    }
+
+    private static void appendId(final BytesRefBuilder builder, final byte prefix, final Long id) {
+        builder.append(prefix);
+        builder.append(DELIMITER);
+        if (id == null) {
+            appendChars(builder, null);
+        } else {
+            appendLong(builder, id);
+        }
+    }
+
+    private static void appendFieldName(final BytesRefBuilder builder, final TermFormat format, final String fieldName) {
+        if (format == TermFormat.COMPACT) {
+            appendCompactFieldName(builder, fieldName);
+        } else {
+            builder.append(DELIMITER);
+            appendChars(builder, fieldName);
+            builder.append(DELIMITER);
+        }
+    }
+
+    /**
+     * Completes a prefix from {@code generate*FieldPrefix} with each of the values. The prefix is copied into the
+     * scratch buffer again for every value, so the consumer is free to encode other contents into the buffer in
+     * between, and the same prefix can be completed any number of times.
+     */
+    static void generateForValues(final BytesRef prefix, final Iterable<String> fieldValues, final Consumer<BytesRef> consumer) {
+        for (final String fieldValue : fieldValues) {
+            final BytesRefBuilder builder = termBuilder();
+            builder.copyBytes(prefix);
+            appendChars(builder, fieldValue);
+            consumer.accept(builder.toBytesRef());
+        }
+    }
+
+    /**
+     * Writes the decimal representation of the value, exactly as {@link Long#toString(long)} would produce it.
+     */
+    private static void appendLong(final BytesRefBuilder builder, final long value) {
+        if (value == Long.MIN_VALUE) {
+            appendChars(builder, Long.toString(value));
+            return;
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            builder.append((byte) '-');
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long bound = 10; digits < 19 && remaining >= bound; bound *= 10) {
+            digits++;
+        }
+        final int end = builder.length() + digits;
+        builder.grow(end);
+        final byte[] bytes = builder.bytes();
+        for (int pos = end - 1; pos >= end - digits; pos--) {
+            bytes[pos] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        builder.setLength(end);
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the characters. {@code null} is written as "null" to stay byte-identical with
+     * the string concatenation the terms were originally built with.
+     */
+    private static void appendChars(final BytesRefBuilder builder, @Nullable final String chars) {
+        final String value = String.valueOf(chars);
+        final int start = builder.length();
+        builder.grow(start + value.length() * UnicodeUtil.MAX_UTF8_BYTES_PER_CHAR);
+        builder.setLength(UnicodeUtil.UTF16toUTF8(value, 0, value.length(), builder.bytes(), start));
+    }
+
+    /**
+     * Writes the zig-zag varint of the id. {@code null} is written as the overlong varint {@code 0x80 0x00}, which
+     * {@link #appendVarLong(BytesRefBuilder, long)} never produces, so it has contents of its own just like the "null"
+     * of {@link TermFormat#TEXT} and data that indexes in one format also indexes in the other.
+     */
+    private static void appendCompactId(final BytesRefBuilder builder, @Nullable final Long id) {
+        if (id == null) {
+            builder.append(COMPACT_NULL_ID_FIRST_BYTE);
+            builder.append(COMPACT_NULL_ID_SECOND_BYTE);
+            return;
+        }
+        appendVarLong(builder, (id << 1) ^ (id >> 63));
+    }
+
+    private static void appendCompactFieldName(final BytesRefBuilder builder, final String fieldName) {
+        final long customFieldId = parseCustomFieldId(fieldName);
+        if (customFieldId >= 0) {
+            appendVarLong(builder, COMPACT_FIRST_CUSTOM_FIELD + customFieldId);
+        } else if (ISSUE_ASSIGNEE.equals(fieldName)) {
+            appendVarLong(builder, COMPACT_ASSIGNEE_FIELD);
+        } else if (ISSUE_AUTHOR.equals(fieldName)) {
+            appendVarLong(builder, COMPACT_AUTHOR_FIELD);
+        } else {
+            final String name = String.valueOf(fieldName);
+            appendVarLong(builder, COMPACT_LITERAL_FIELD);
+            appendVarLong(builder, UnicodeUtil.calcUTF16toUTF8Length(name, 0, name.length()));
+            appendChars(builder, name);
+        }
+    }
+
+    /**
+     * @return Id of the custom field, or -1 if the field name isn't one of a custom field
+     */
+    private static long parseCustomFieldId(final String fieldName) {
+        final int length = fieldName == null ? 0 : fieldName.length();
+        final int start = CUSTOM_FIELD_PREFIX.length();
+        // ids that would overflow or don't round-trip (leading zeros) are written as literal names instead
+        if (length <= start || length - start > 18 || !fieldName.startsWith(CUSTOM_FIELD_PREFIX)
+                || (fieldName.charAt(start) == '0' && length - start > 1)) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = start; i < length; i++) {
+            final char digit = fieldName.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            id = id * 10 + (digit - '0');
+        }
+        return id;
+    }
+
+    private static void appendVarLong(final BytesRefBuilder builder, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            builder.append((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        builder.append((byte) remaining);
+    }
 }
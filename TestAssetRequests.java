@@ -0,0 +1,36 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestAssetRequests {
+    @Test
+    public void resourcesShouldBeAssets() {
+        assertTrue(AssetRequests.isAsset(request("/s", "/d41d8cd98f00b204e9800998ecf8427e-CDN/-1a2b3c/9120/_/download/batch/jira.webresources:jira-global/jira.webresources:jira-global.js")));
+        assertTrue(AssetRequests.isAsset(request("/s", "/download/logo")));
+        assertTrue(AssetRequests.isAsset(request("/s", null)));
+    }
+
+    @Test
+    public void otherServletsShouldNotBeAssets() {
+        assertFalse(AssetRequests.isAsset(request("/secure", "/Dashboard.jspa")));
+        assertFalse(AssetRequests.isAsset(request("/rest", "/api/2/_/issue")));
+        assertFalse(AssetRequests.isAsset(request("/sr", "/jira.issueviews:searchrequest-xml/temp/SearchRequest.xml")));
+    }
+
+    private static HttpServletRequest request(final String servletPath, final String pathInfo) {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(servletPath);
+        when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+}
@@ -0,0 +1,146 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+
+import static com.atlassian.jira.security.auth.Authorisation.Decision.ABSTAIN;
+import static com.atlassian.jira.security.auth.Authorisation.Decision.DENIED;
+import static com.atlassian.jira.security.auth.Authorisation.Decision.GRANTED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestAuthorisationDecisionCache {
+    private static final String MODULE_KEY = "com.example:answering-authorisation";
+
+    private final ApplicationUser fred = new MockApplicationUser("fred");
+    private final AuthorisationDecisionCache cache = new AuthorisationDecisionCache();
+
+    @Test
+    public void decisionsShouldBeReusedForSameDeclaredParameters() {
+        final AnsweringAuthorisation authorisation = spy(new AnsweringAuthorisation());
+
+        assertEquals(GRANTED, cache.authoriseForRole(MODULE_KEY, authorisation, fred, request("true"), "admin"));
+        assertEquals(GRANTED, cache.authoriseForRole(MODULE_KEY, authorisation, fred, request("true"), "admin"));
+        assertEquals(DENIED, cache.authoriseForRole(MODULE_KEY, authorisation, fred, request("false"), "admin"));
+
+        verify(authorisation, times(2)).authoriseForRole(eq(fred), any(HttpServletRequest.class), eq("admin"));
+        assertEquals(1.0 / 3, cache.getHitRatios().get(MODULE_KEY), 0.001);
+        assertEquals(2L, (long) cache.getEvaluationCounts().get(MODULE_KEY));
+    }
+
+    @Test
+    public void failedCallsShouldNotBeCached() {
+        final AnsweringAuthorisation authorisation = new AnsweringAuthorisation();
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.authoriseForRole(MODULE_KEY, authorisation, fred, request("exception"), "admin");
+                fail("exception expected");
+            } catch (RuntimeException expected) {
+            }
+        }
+        assertEquals(2L, (long) cache.getEvaluationCounts().get(MODULE_KEY));
+    }
+
+    @Test
+    public void clearCacheShouldDropDecisions() {
+        final AnsweringAuthorisation authorisation = new AnsweringAuthorisation();
+        cache.authoriseForRole(MODULE_KEY, authorisation, fred, request("abstain"), "admin");
+
+        cache.onClearCache(ClearCacheEvent.INSTANCE);
+
+        assertEquals(ABSTAIN, cache.authoriseForRole(MODULE_KEY, authorisation, fred, request("abstain"), "admin"));
+        assertEquals(2L, (long) cache.getEvaluationCounts().get(MODULE_KEY));
+    }
+
+    @Test
+    public void providersThatDontOptInShouldBeCalledEveryTime() {
+        final Authorisation authorisation = mock(Authorisation.class);
+        when(authorisation.authoriseForRole(fred, null, "admin")).thenReturn(GRANTED);
+
+        cache.authoriseForRole("com.example:sso", authorisation, fred, null, "admin");
+        cache.authoriseForRole("com.example:sso", authorisation, fred, null, "admin");
+
+        verify(authorisation, times(2)).authoriseForRole(fred, null, "admin");
+        assertEquals(0.0, cache.getHitRatios().get("com.example:sso"), 0.001);
+    }
+
+    @Test
+    public void stopShouldUnregisterMBean() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(AuthorisationDecisionCache.OBJECT_NAME);
+
+        cache.start();
+        assertTrue(mBeanServer.isRegistered(objectName));
+        cache.stop();
+        assertFalse(mBeanServer.isRegistered(objectName));
+    }
+
+    private static HttpServletRequest request(final String answer) {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("answer")).thenReturn(answer);
+        return request;
+    }
+
+    /**
+     * Answers with the {@code answer} request parameter, and throws if it is {@code exception}.
+     */
+    static class AnsweringAuthorisation implements CacheableAuthorisation {
+        @Nonnull
+        @Override
+        public Set<CacheKeyDimension> getCacheKeyDimensions() {
+            return ImmutableSet.of();
+        }
+
+        @Nonnull
+        @Override
+        public Set<String> getCacheKeyParameters() {
+            return Collections.singleton("answer");
+        }
+
+        @Override
+        public Decision authoriseForLogin(@Nonnull final ApplicationUser user, final HttpServletRequest request) {
+            return ABSTAIN;
+        }
+
+        @Override
+        public Set<String> getRequiredRoles(final HttpServletRequest request) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Decision authoriseForRole(@Nullable final ApplicationUser user, final HttpServletRequest request, final String role) {
+            final String answer = request.getParameter("answer");
+            if ("exception".equals(answer)) {
+                throw new IllegalStateException("provider failed");
+            }
+            if ("abstain".equals(answer)) {
+                return ABSTAIN;
+            }
+            return Boolean.parseBoolean(answer) ? GRANTED : DENIED;
+        }
+    }
+}
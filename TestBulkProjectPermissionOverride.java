@@ -0,0 +1,69 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.jira.project.MockProject;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static com.atlassian.jira.permission.ProjectPermissions.BROWSE_PROJECTS;
+import static com.atlassian.jira.permission.ProjectPermissions.EDIT_ISSUES;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.ABSTAIN;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.DENY;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @since 9.12
+ */
+public class TestBulkProjectPermissionOverride {
+    private static final ApplicationUser BRAD = new MockApplicationUser("brad_the_odlaw");
+    private static final List<Project> PROJECTS = ImmutableList.of(new MockProject(10000L), new MockProject(10001L));
+    private static final Set<ProjectPermissionKey> KEYS = ImmutableSet.of(BROWSE_PROJECTS, EDIT_ISSUES);
+
+    @Test
+    public void scalarOverrideShouldBeAskedForEveryPair() {
+        final Table<Long, ProjectPermissionKey, ProjectPermissionOverride.Decision> decisions =
+                BulkProjectPermissionOverride.evaluate(MockProjectPermissionOverride.denying(EDIT_ISSUES), KEYS, PROJECTS, BRAD);
+
+        assertEquals(4, decisions.size());
+        assertEquals(DENY, decisions.get(10000L, EDIT_ISSUES));
+        assertEquals(DENY, decisions.get(10001L, EDIT_ISSUES));
+        assertEquals(ABSTAIN, decisions.get(10001L, BROWSE_PROJECTS));
+    }
+
+    @Test
+    public void bulkOverrideShouldBeAskedOnceAndMissingDecisionsShouldAbstain() {
+        final Table<Long, ProjectPermissionKey, ProjectPermissionOverride.Decision> decisions =
+                BulkProjectPermissionOverride.evaluate(new DenyEditInFirstProject(), KEYS, PROJECTS, BRAD);
+
+        assertEquals(4, decisions.size());
+        assertEquals(DENY, decisions.get(10000L, EDIT_ISSUES));
+        assertEquals(ABSTAIN, decisions.get(10001L, EDIT_ISSUES));
+    }
+
+    private static class DenyEditInFirstProject implements BulkProjectPermissionOverride {
+        @Override
+        public Table<Long, ProjectPermissionKey, Decision> hasPermissions(final Set<ProjectPermissionKey> projectPermissionKeys,
+                                                                          final Collection<Project> projects, final ApplicationUser applicationUser) {
+            return ImmutableTable.of(10000L, EDIT_ISSUES, Decision.DENY);
+        }
+
+        @Override
+        public Decision hasPermission(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+            throw new AssertionError("bulk evaluation expected");
+        }
+
+        @Override
+        public Reason getReason(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+            return null;
+        }
+    }
+}
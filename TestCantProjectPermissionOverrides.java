@@ -0,0 +1,61 @@
+package com.atlassian.jira.dev.reference.plugin.security;
+
+import com.atlassian.jira.project.MockProject;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.security.plugin.ExplainableProjectPermissionOverride;
+import com.atlassian.jira.security.plugin.ProjectPermissionKey;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import org.junit.Test;
+
+import static com.atlassian.jira.permission.ProjectPermissions.ADD_COMMENTS;
+import static com.atlassian.jira.permission.ProjectPermissions.BROWSE_PROJECTS;
+import static com.atlassian.jira.permission.ProjectPermissions.EDIT_ISSUES;
+import static com.atlassian.jira.permission.ProjectPermissions.TRANSITION_ISSUES;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.ABSTAIN;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.DENY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @since 9.12
+ */
+public class TestCantProjectPermissionOverrides {
+    private static final Project PROJECT = new MockProject(10000L);
+    private static final ApplicationUser BRAD = new MockApplicationUser("brad_the_odlaw");
+    private static final ApplicationUser FRED = new MockApplicationUser("fred");
+
+    @Test
+    public void cantEditIssueShouldExplainItsDecisions() {
+        assertExplainsDecisions(new CantEditIssueProjectPermissionOverride(), EDIT_ISSUES);
+    }
+
+    @Test
+    public void cantCommentShouldExplainItsDecisions() {
+        assertExplainsDecisions(new CantCommentProjectPermissionOverride(), ADD_COMMENTS);
+    }
+
+    @Test
+    public void cantTransitionIssueShouldExplainItsDecisions() {
+        assertExplainsDecisions(new CantTransitionIssueProjectPermissionOverride(), TRANSITION_ISSUES);
+    }
+
+    private static void assertExplainsDecisions(final ExplainableProjectPermissionOverride override, final ProjectPermissionKey deniedKey) {
+        assertEquals(DENY, override.hasPermission(deniedKey, PROJECT, BRAD));
+        assertEquals(ABSTAIN, override.hasPermission(BROWSE_PROJECTS, PROJECT, BRAD));
+        assertEquals(ABSTAIN, override.hasPermission(deniedKey, PROJECT, FRED));
+        assertEquals(ABSTAIN, override.hasPermission(deniedKey, PROJECT, null));
+
+        // reasons are shared per decision and don't depend on anything else
+        assertSame(override.explain(DENY, deniedKey, PROJECT, BRAD), override.explain(DENY, BROWSE_PROJECTS, PROJECT, FRED));
+        assertSame(override.explain(ABSTAIN, deniedKey, PROJECT, BRAD), override.explain(ABSTAIN, deniedKey, PROJECT, null));
+        assertNotSame(override.explain(DENY, deniedKey, PROJECT, BRAD), override.explain(ABSTAIN, deniedKey, PROJECT, BRAD));
+
+        // getReason evaluates the decision and explains it the same way
+        assertSame(override.explain(DENY, deniedKey, PROJECT, BRAD), override.getReason(deniedKey, PROJECT, BRAD));
+        assertSame(override.explain(ABSTAIN, BROWSE_PROJECTS, PROJECT, BRAD), override.getReason(BROWSE_PROJECTS, PROJECT, BRAD));
+        assertSame(override.explain(ABSTAIN, deniedKey, PROJECT, FRED), override.getReason(deniedKey, PROJECT, FRED));
+        assertSame(override.explain(ABSTAIN, deniedKey, PROJECT, null), override.getReason(deniedKey, PROJECT, null));
+    }
+}
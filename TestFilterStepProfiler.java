@@ -0,0 +1,135 @@
+package com.atlassian.jira.web.filters.steps;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestFilterStepProfiler {
+    private final FilterStepProfiler profiler = new FilterStepProfiler(true);
+
+    @Test
+    public void samplesShouldBeRecordedPerStepAndUrlPattern() {
+        profiler.record("HttpSecurityStep:before", "/rest", TimeUnit.MICROSECONDS.toNanos(5), 100);
+        profiler.record("HttpSecurityStep:before", "/rest", TimeUnit.MICROSECONDS.toNanos(70), 50);
+        profiler.record("HttpSecurityStep:before", "/s", TimeUnit.MILLISECONDS.toNanos(100), -1);
+
+        final List<FilterStepProfiler.StepStatistics> statistics = profiler.getStatistics();
+        assertEquals(2, statistics.size());
+        assertEquals("/rest", statistics.get(0).getUrlPattern());
+        assertEquals(2, statistics.get(0).getCount());
+        assertEquals(75, statistics.get(0).getTotalTimeMicros());
+        assertEquals(150, statistics.get(0).getAllocatedBytes());
+        assertEquals(1L, (long) statistics.get(0).getLatencyHistogram().get(0));
+        assertEquals(1L, (long) statistics.get(0).getLatencyHistogram().get(2));
+        assertEquals(0, statistics.get(1).getAllocatedBytes());
+        assertEquals(1L, (long) statistics.get(1).getLatencyHistogram().get(FilterStepProfiler.getLatencyBucketsMicros().size()));
+        assertEquals(2L, (long) profiler.getInvocationCounts().get("HttpSecurityStep:before /rest"));
+
+        profiler.reset();
+        assertTrue(profiler.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void urlPatternShouldBeFirstSegmentOfServletPath() {
+        assertEquals("/secure", FilterStepProfiler.urlPattern("/secure/Dashboard.jspa"));
+        assertEquals("/rest", FilterStepProfiler.urlPattern("/rest"));
+        assertEquals("/", FilterStepProfiler.urlPattern(""));
+        assertEquals("/", FilterStepProfiler.urlPattern(null));
+    }
+
+    @Test
+    public void unknownUrlPatternsShouldShareOneSeries() {
+        assertEquals(FilterStepProfiler.OTHER_URL_PATTERN, FilterStepProfiler.urlPattern("/random-1/x"));
+        assertEquals(FilterStepProfiler.OTHER_URL_PATTERN, FilterStepProfiler.urlPattern("/random-2"));
+
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        for (int i = 0; i < 100; i++) {
+            when(request.getServletPath()).thenReturn("/random-" + i);
+            profiler.start("step", request).close();
+        }
+
+        assertEquals(1, profiler.getStatistics().size());
+        assertEquals(100, profiler.getStatistics().get(0).getCount());
+    }
+
+    @Test
+    public void stopShouldUnregisterMBean() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(FilterStepProfiler.OBJECT_NAME);
+
+        profiler.start();
+        assertTrue(mBeanServer.isRegistered(objectName));
+        profiler.stop();
+        assertFalse(mBeanServer.isRegistered(objectName));
+        profiler.stop();
+    }
+
+    @Test
+    public void profilingStepShouldRecordBothPhases() throws Exception {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn("/browse");
+        final FilterCallContext context = new FilterCallContextImpl(request, mock(HttpServletResponse.class),
+                mock(FilterChain.class), mock(FilterConfig.class));
+        final FilterStep step = mock(FilterStep.class);
+        when(step.beforeDoFilter(context)).thenReturn(context);
+
+        final FilterStep profiled = ProfilingFilterStep.wrap(step, profiler);
+        assertSame(context, profiled.beforeDoFilter(context));
+        profiled.finallyAfterDoFilter(context);
+
+        verify(step).beforeDoFilter(context);
+        verify(step).finallyAfterDoFilter(context);
+        final List<FilterStepProfiler.StepStatistics> statistics = profiler.getStatistics();
+        assertEquals(2, statistics.size());
+        assertTrue(statistics.get(0).getStep().endsWith(":after"));
+        assertEquals("/browse", statistics.get(0).getUrlPattern());
+        assertTrue(statistics.get(1).getStep().endsWith(":before"));
+    }
+
+    @Test
+    public void anonymousStepsShouldBeNamedAfterTheirClass() {
+        final FilterStep anonymous = new FilterStep() {
+            @Override
+            public FilterCallContext beforeDoFilter(final FilterCallContext callContext) {
+                return callContext;
+            }
+
+            @Override
+            public FilterCallContext finallyAfterDoFilter(final FilterCallContext callContext) {
+                return callContext;
+            }
+        };
+
+        assertEquals("FilterStep", ProfilingFilterStep.stepName(FilterStep.class));
+        assertEquals(anonymous.getClass().getName(), ProfilingFilterStep.stepName(anonymous.getClass()));
+    }
+
+    @Test
+    public void disabledProfilerShouldNotWrapSteps() {
+        final FilterStepProfiler disabled = new FilterStepProfiler(false);
+        final FilterStep step = mock(FilterStep.class);
+
+        assertSame(step, ProfilingFilterStep.wrap(step, disabled));
+        disabled.start("step", mock(HttpServletRequest.class)).close();
+        assertTrue(disabled.getStatistics().isEmpty());
+    }
+}
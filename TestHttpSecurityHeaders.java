@@ -0,0 +1,117 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestHttpSecurityHeaders {
+    private final HttpServletResponse response = mock(HttpServletResponse.class);
+
+    @Test
+    public void defaultHeadersShouldBeSet() {
+        HttpSecurityHeaders.DEFAULT.apply(response, false);
+
+        verify(response).setHeader(HttpHeaders.X_CONTENT_TYPE_OPTIONS, "nosniff");
+        verify(response).setHeader(HttpHeaders.X_XSS_PROTECTION, "1; mode=block");
+        verify(response).setHeader(HttpHeaders.REFERRER_POLICY, "strict-origin-when-cross-origin");
+        verify(response).setHeader(HttpHeaders.STRICT_TRANSPORT_SECURITY, "max-age=31536000");
+        verify(response).setHeader(HttpHeaders.X_FRAME_OPTIONS, "SAMEORIGIN");
+        verify(response).setHeader(HttpHeaders.CONTENT_SECURITY_POLICY, "frame-ancestors 'self'");
+    }
+
+    @Test
+    public void excludedPathsShouldNotGetClickjackingHeaders() {
+        HttpSecurityHeaders.DEFAULT.apply(response, true);
+
+        verify(response).setHeader(HttpHeaders.X_CONTENT_TYPE_OPTIONS, "nosniff");
+        verify(response).setHeader(HttpHeaders.STRICT_TRANSPORT_SECURITY, "max-age=31536000");
+        verify(response, never()).setHeader(eq(HttpHeaders.X_FRAME_OPTIONS), any());
+        verify(response, never()).setHeader(eq(HttpHeaders.CONTENT_SECURITY_POLICY), any());
+    }
+
+    @Test
+    public void disabledProtectionsShouldNotBeRendered() {
+        final HttpSecurityHeaders headers = HttpSecuritySettings.builder()
+                .clickjackingProtectionDisabled(true)
+                .strictTransportSecurityDisabled(true)
+                .build(1)
+                .getHeaders();
+
+        assertEquals(headers.getHeaders(true), headers.getHeaders(false));
+        assertEquals(3, headers.getHeaders(false).size());
+    }
+
+    @Test
+    public void strictTransportSecurityShouldBeRenderedFromSettings() {
+        assertEquals("max-age=0; includeSubDomains", strictTransportSecurity(HttpSecuritySettings.builder()
+                .strictTransportSecurityMaxAge(0L).strictTransportSecurityIncludeSubDomainsEnabled(true)));
+        assertEquals("max-age=0; includeSubDomains; preload", strictTransportSecurity(HttpSecuritySettings.builder()
+                .strictTransportSecurityMaxAge(0L).strictTransportSecurityPreloadEnabled(true)));
+        assertEquals("max-age=0; param", strictTransportSecurity(HttpSecuritySettings.builder()
+                .strictTransportSecurityMaxAge(0L).strictTransportSecurityAdditionalParams("param")));
+    }
+
+    @Test
+    public void assetsShouldGetAllHeadersWithoutExclusionCheck() {
+        final HttpSecuritySettings settings = HttpSecuritySettings.builder()
+                .excludedPaths(PathPrefixMatcher.compile(ImmutableList.of("/s/download/logo")))
+                .build(1);
+
+        HttpSecurityHeaders.applyTo(settings, request("/s", "/download/logo"), response);
+
+        verify(response).setHeader(HttpHeaders.X_FRAME_OPTIONS, "SAMEORIGIN");
+        verify(response).setHeader(HttpHeaders.CONTENT_SECURITY_POLICY, "frame-ancestors 'self'");
+    }
+
+    @Test
+    public void pathsShouldBeCombined() {
+        final HttpSecuritySettings settings = HttpSecuritySettings.builder()
+                .excludedPaths(PathPrefixMatcher.compile(ImmutableList.of("/one/two")))
+                .build(1);
+
+        HttpSecurityHeaders.applyTo(settings, request("/one", "/two/sub-path"), response);
+
+        verify(response).setHeader(HttpHeaders.X_CONTENT_TYPE_OPTIONS, "nosniff");
+        verify(response, never()).setHeader(eq(HttpHeaders.X_FRAME_OPTIONS), any());
+    }
+
+    @Test
+    public void allHeadersShouldBeSetWhenSettingsAreNotAvailable() {
+        HttpSecurityHeaders.applyTo(null, request("/one", null), response);
+
+        verify(response).setHeader(HttpHeaders.X_FRAME_OPTIONS, "SAMEORIGIN");
+        verify(response).setHeader(HttpHeaders.STRICT_TRANSPORT_SECURITY, "max-age=31536000");
+    }
+
+    private static HttpServletRequest request(final String servletPath, final String pathInfo) {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(servletPath);
+        when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+
+    private static String strictTransportSecurity(final HttpSecuritySettings.Builder settings) {
+        final List<Map.Entry<String, String>> headers = settings.build(1).getHeaders().getHeaders(false);
+        return headers.stream()
+                .filter(header -> header.getKey().equals(HttpHeaders.STRICT_TRANSPORT_SECURITY))
+                .findFirst()
+                .map(Map.Entry::getValue)
+                .orElse(null);
+    }
+}
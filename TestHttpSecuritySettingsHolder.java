@@ -0,0 +1,118 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.plugin.ModuleDescriptor;
+import com.atlassian.plugin.event.events.PluginModuleDisabledEvent;
+import com.atlassian.plugin.event.events.PluginModuleEnabledEvent;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @since 9.12
+ */
+public class TestHttpSecuritySettingsHolder {
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile List<String> excludedPaths = ImmutableList.of("/one");
+    private final HttpSecuritySettingsHolder holder = new HttpSecuritySettingsHolder(builder -> {
+        loads.incrementAndGet();
+        builder.excludedPaths(PathPrefixMatcher.compile(excludedPaths)).strictTransportSecurityMaxAge(0L);
+    });
+
+    @Test
+    public void settingsShouldBeLoadedOnce() {
+        final HttpSecuritySettings settings = holder.get();
+
+        assertSame(settings, holder.get());
+        assertEquals(1, loads.get());
+        assertTrue(settings.isExcluded("/one/two"));
+        assertEquals(Long.valueOf(0L), settings.getStrictTransportSecurityMaxAge());
+    }
+
+    @Test
+    public void pathExclusionModuleChangesShouldSwapSettings() {
+        final HttpSecuritySettings first = holder.get();
+        excludedPaths = ImmutableList.of("/two");
+
+        holder.onPluginModuleEnabled(new PluginModuleEnabledEvent(mock(PathExclusionModuleDescriptor.class)));
+
+        final HttpSecuritySettings second = holder.get();
+        assertTrue(second.getVersion() > first.getVersion());
+        assertFalse(second.isExcluded("/one"));
+        assertTrue(second.isExcluded("/two"));
+        assertTrue(first.isExcluded("/one"));
+
+        holder.onPluginModuleDisabled(new PluginModuleDisabledEvent(mock(PathExclusionModuleDescriptor.class), false));
+        assertTrue(holder.get().getVersion() > second.getVersion());
+    }
+
+    @Test
+    public void otherModulesShouldNotSwapSettings() {
+        final HttpSecuritySettings settings = holder.get();
+
+        holder.onPluginModuleEnabled(new PluginModuleEnabledEvent(mock(ModuleDescriptor.class)));
+
+        assertSame(settings, holder.get());
+    }
+
+    @Test
+    public void clearCacheShouldSwapSettings() {
+        final HttpSecuritySettings settings = holder.get();
+
+        holder.onClearCache(ClearCacheEvent.INSTANCE);
+
+        assertEquals(settings.getVersion() + 1, holder.get().getVersion());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void refreshShouldPickUpPropertyChanges() {
+        final HttpSecuritySettings settings = holder.get();
+        excludedPaths = ImmutableList.of("/two");
+
+        holder.refresh();
+
+        assertEquals(settings.getVersion() + 1, holder.get().getVersion());
+        assertTrue(holder.get().isExcluded("/two"));
+    }
+
+    @Test
+    public void concurrentFirstCallsShouldLoadOnce() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final HttpSecuritySettingsHolder slowHolder = new HttpSecuritySettingsHolder(builder -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<HttpSecuritySettings> first = executor.submit(slowHolder::get);
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            final Future<HttpSecuritySettings> second = executor.submit(slowHolder::get);
+            release.countDown();
+
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
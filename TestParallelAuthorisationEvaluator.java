@@ -0,0 +1,248 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static com.atlassian.jira.security.auth.Authorisation.Decision.ABSTAIN;
+import static com.atlassian.jira.security.auth.Authorisation.Decision.DENIED;
+import static com.atlassian.jira.security.auth.Authorisation.Decision.GRANTED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestParallelAuthorisationEvaluator {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ApplicationUser fred = new MockApplicationUser("fred");
+    private final HttpServletRequest request = mock(HttpServletRequest.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ParallelAuthorisationEvaluator evaluator = new ParallelAuthorisationEvaluator(true, executor, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+    /**
+     * Never released, for providers that should still be running when the evaluation ends.
+     */
+    private final CountDownLatch never = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void firstProviderThatDecidesShouldWin() {
+        final CountDownLatch granted = new CountDownLatch(1);
+        final Authorisation denyAfterGrant = new TestAuthorisation(r -> {
+            await(granted);
+            return DENIED;
+        });
+        final Authorisation grant = new TestAuthorisation(r -> {
+            granted.countDown();
+            return GRANTED;
+        });
+
+        assertEquals(DENIED, evaluator.authoriseForRole(ImmutableList.of(denyAfterGrant, grant), fred, request, "admin"));
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(new TestAuthorisation(r -> ABSTAIN), grant), fred, request, "admin"));
+    }
+
+    @Test
+    public void providersShouldRunConcurrently() {
+        // each provider waits for all others to start, so they can only decide if they run at the same time
+        final CountDownLatch started = new CountDownLatch(3);
+        final Function<Authorisation.Decision, Authorisation> provider = decision -> new TestAuthorisation(r -> {
+            started.countDown();
+            return await(started) ? decision : DENIED;
+        });
+
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(provider.apply(ABSTAIN), provider.apply(ABSTAIN), provider.apply(GRANTED)),
+                fred, request, "admin"));
+    }
+
+    @Test
+    public void failingProviderShouldAbstain() {
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(
+                new TestAuthorisation(r -> ABSTAIN), new TestAuthorisation(r -> {
+                    throw new IllegalStateException("remote service unavailable");
+                }), new TestAuthorisation(r -> GRANTED)),
+                fred, request, "admin"));
+    }
+
+    @Test
+    public void providerAheadPastDeadlineShouldDeny() {
+        final ParallelAuthorisationEvaluator shortDeadline = new ParallelAuthorisationEvaluator(true, executor, 50);
+
+        assertEquals(DENIED, shortDeadline.authoriseForRole(ImmutableList.of(
+                new TestAuthorisation(r -> {
+                    await(never);
+                    return ABSTAIN;
+                }), new TestAuthorisation(r -> GRANTED)),
+                fred, request, "admin"));
+    }
+
+    @Test
+    public void failingProviderBehindDecisionShouldBeIgnored() {
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(
+                new TestAuthorisation(r -> GRANTED), new TestAuthorisation(r -> {
+                    throw new IllegalStateException("remote service unavailable");
+                })),
+                fred, request, "admin"));
+    }
+
+    @Test
+    public void providersBehindDecisionShouldBeInterrupted() throws InterruptedException {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Authorisation straggler = new TestAuthorisation(r -> {
+            running.countDown();
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return ABSTAIN;
+        });
+        final Authorisation grantOnceStragglerRuns = new TestAuthorisation(r -> await(running) ? GRANTED : ABSTAIN);
+
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(grantOnceStragglerRuns, straggler), fred, request, "admin"));
+        assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void providersShouldReadRequestOnlyWhileEvaluating() throws IOException {
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getParameter("answer")).thenReturn("true");
+        when(request.getHeader("X-Forwarded-For")).thenReturn("10.0.0.1");
+        final AtomicReference<HttpServletRequest> seen = new AtomicReference<>();
+        final Authorisation answering = new TestAuthorisation(r -> {
+            seen.set(r);
+            return Boolean.parseBoolean(r.getParameter("answer")) && "10.0.0.1".equals(r.getHeader("X-Forwarded-For")) ? GRANTED : DENIED;
+        });
+
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(new TestAuthorisation(r -> ABSTAIN), answering), fred, request, "admin"));
+        assertNotSame(request, seen.get());
+        verify(request, never()).getParameterMap();
+        verify(request, never()).getInputStream();
+        try {
+            seen.get().getMethod();
+            fail("request of an evaluation that ended should not be readable");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void providersShouldRunOnCallingThreadWhenPoolIsFull() {
+        final ThreadPoolExecutor pool = ParallelAuthorisationEvaluator.newExecutor(1, 1);
+        try {
+            final ParallelAuthorisationEvaluator small = new ParallelAuthorisationEvaluator(true, pool, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            final CountDownLatch done = new CountDownLatch(1);
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            // the first provider takes the only thread, the second the only queue slot and the third runs right away
+            final Authorisation busy = new TestAuthorisation(r -> await(done) ? ABSTAIN : DENIED);
+            final Authorisation queued = new TestAuthorisation(r -> ABSTAIN);
+            final Authorisation overflow = new TestAuthorisation(r -> {
+                thread.set(Thread.currentThread());
+                done.countDown();
+                return GRANTED;
+            });
+
+            assertEquals(GRANTED, small.authoriseForRole(ImmutableList.of(busy, queued, overflow), fred, request, "admin"));
+            assertSame(Thread.currentThread(), thread.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stoppedEvaluatorShouldAskProvidersSerially() {
+        final AtomicReference<HttpServletRequest> seen = new AtomicReference<>();
+        evaluator.stop();
+
+        assertTrue(executor.isShutdown());
+        assertEquals(GRANTED, evaluator.authoriseForRole(ImmutableList.of(
+                new TestAuthorisation(r -> ABSTAIN), new TestAuthorisation(r -> {
+                    seen.set(r);
+                    return GRANTED;
+                })),
+                fred, request, "admin"));
+        assertSame(request, seen.get());
+    }
+
+    @Test
+    public void disabledEvaluatorShouldTreatFailingProviderAsAbstained() {
+        final ParallelAuthorisationEvaluator serial = new ParallelAuthorisationEvaluator(false, executor, 50);
+
+        assertEquals(GRANTED, serial.authoriseForRole(ImmutableList.of(
+                new TestAuthorisation(r -> {
+                    throw new IllegalStateException("remote service unavailable");
+                }), new TestAuthorisation(r -> GRANTED)),
+                fred, request, "admin"));
+    }
+
+    @Test
+    public void disabledEvaluatorShouldAskProvidersInOrder() {
+        final ParallelAuthorisationEvaluator serial = new ParallelAuthorisationEvaluator(false, executor, 50);
+        final AtomicReference<HttpServletRequest> seen = new AtomicReference<>();
+
+        assertEquals(DENIED, serial.authoriseForRole(ImmutableList.of(
+                new TestAuthorisation(r -> ABSTAIN), new TestAuthorisation(r -> {
+                    seen.set(r);
+                    return DENIED;
+                }), new TestAuthorisation(r -> GRANTED)),
+                fred, request, "admin"));
+        assertSame(request, seen.get());
+    }
+
+    private static boolean await(final CountDownLatch latch) {
+        try {
+            return latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static class TestAuthorisation implements Authorisation {
+        private final Function<HttpServletRequest, Decision> decision;
+
+        private TestAuthorisation(final Function<HttpServletRequest, Decision> decision) {
+            this.decision = decision;
+        }
+
+        @Override
+        public Decision authoriseForLogin(final ApplicationUser user, final HttpServletRequest httpServletRequest) {
+            return decision.apply(httpServletRequest);
+        }
+
+        @Override
+        public Set<String> getRequiredRoles(final HttpServletRequest httpServletRequest) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Decision authoriseForRole(final ApplicationUser user, final HttpServletRequest httpServletRequest, final String role) {
+            return decision.apply(httpServletRequest);
+        }
+    }
+}
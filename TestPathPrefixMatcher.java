@@ -0,0 +1,74 @@
+package com.atlassian.jira.web.filters.steps.security;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 9.12
+ */
+public class TestPathPrefixMatcher {
+    @Test
+    public void exactMatchAndSubpathShouldMatch() {
+        final PathPrefixMatcher matcher = PathPrefixMatcher.compile(ImmutableList.of("/one", "/two/"));
+
+        assertTrue(matcher.matches("/one"));
+        assertTrue(matcher.matches("/one/two"));
+        assertTrue(matcher.matches("/two/three"));
+        assertFalse(matcher.matches("/two"));
+        assertFalse(matcher.matches("/three"));
+        assertFalse(matcher.matches("/"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    public void blankEntriesShouldBeIgnoredAndOthersTrimmed() {
+        final PathPrefixMatcher matcher = PathPrefixMatcher.compile(ImmutableList.of("", "  ", "  /one,", "\n/two  "));
+
+        assertEquals(2, matcher.size());
+        assertTrue(matcher.matches("/two/three"));
+        assertFalse(matcher.matches("/three"));
+        assertFalse(PathPrefixMatcher.compile(ImmutableList.of(" ")).matches("/one"));
+    }
+
+    @Test
+    public void redundantPrefixesShouldBeDropped() {
+        final PathPrefixMatcher matcher = PathPrefixMatcher.compile(ImmutableList.of("/a/b/c", "/a/b", "/a/bc", "/b"));
+
+        assertEquals(2, matcher.size());
+        assertTrue(matcher.matches("/a/bcd"));
+        assertTrue(matcher.matches("/a/b"));
+        assertFalse(matcher.matches("/a/"));
+    }
+
+    @Test
+    public void shouldMatchLikeLinearScan() {
+        final Random random = new Random(7);
+        final List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            prefixes.add(randomPath(random));
+        }
+        final PathPrefixMatcher matcher = PathPrefixMatcher.compile(prefixes);
+
+        for (int i = 0; i < 10_000; i++) {
+            final String path = randomPath(random) + randomPath(random);
+            assertEquals(path, prefixes.stream().anyMatch(path::startsWith), matcher.matches(path));
+        }
+    }
+
+    private static String randomPath(final Random random) {
+        final StringBuilder path = new StringBuilder();
+        for (int i = random.nextInt(3) + 1; i > 0; i--) {
+            path.append('/').append((char) ('a' + random.nextInt(3)));
+        }
+        return path.toString();
+    }
+}
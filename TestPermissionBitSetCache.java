@@ -0,0 +1,121 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.jira.issue.index.SecurityIndexingUtils;
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionBitSetCache {
+    private final PermissionBitSetCache cache = new PermissionBitSetCache();
+    private Directory directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+            writer.addDocument(issue("1", -1L, 10000L));
+            writer.addDocument(issue("2", 1L, 10000L));
+            writer.addDocument(issue("3", 1L, 10001L));
+            writer.commit();
+            writer.addDocument(issue("4", 2L, 10000L));
+            writer.addDocument(issue("5", 2L, 10001L));
+            writer.deleteDocuments(new Term("key", "5"));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        directory.close();
+    }
+
+    @Test
+    public void shouldMatchAnyOfTheContents() throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            assertEquals(1, searcher.count(cache.newQuery(ImmutableList.of(level(-1L)))));
+            assertEquals(2, searcher.count(cache.newQuery(ImmutableList.of(level(1L)))));
+            assertEquals(2, searcher.count(cache.newQuery(ImmutableList.of(levelInProject(1L, 10000L), level(2L)))));
+            assertEquals(0, searcher.count(cache.newQuery(ImmutableList.of(level(3L)))));
+            assertEquals(3, searcher.count(cache.newQuery(ImmutableList.of(project(10000L)))));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectAndLevelContentsShouldNotBeORed() {
+        cache.newQuery(ImmutableList.of(project(10000L), level(2L)));
+    }
+
+    @Test
+    public void shouldReleaseBitSetsWhenSegmentsAreClosed() throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            new IndexSearcher(reader).count(cache.newQuery(ImmutableList.of(level(1L))));
+
+            assertEquals(reader.leaves().size(), cache.cachedSegmentCount());
+        }
+        assertEquals(0, cache.cachedSegmentCount());
+    }
+
+    @Test
+    public void unionsShouldBeSharedByQueriesWithTheSameContents() throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            assertEquals(2, searcher.count(cache.newQuery(ImmutableList.of(level(2L), level(-1L)))));
+            assertEquals(2, searcher.count(cache.newQuery(ImmutableList.of(level(-1L), level(2L)))));
+            assertEquals(reader.leaves().size(), cache.cachedUnionCount());
+
+            // single contents are served from their own bit set
+            searcher.count(cache.newQuery(ImmutableList.of(level(1L))));
+            assertEquals(reader.leaves().size(), cache.cachedUnionCount());
+        }
+        assertEquals(0, cache.cachedUnionCount());
+    }
+
+    @Test
+    public void queriesWithTheSameContentsShouldBeEqual() {
+        assertEquals(cache.newQuery(ImmutableList.of(level(1L), level(2L))), cache.newQuery(ImmutableList.of(level(2L), level(1L))));
+    }
+
+    private static Document issue(final String key, final Long securityLevel, final Long projectId) {
+        final Document document = new Document();
+        document.add(new StringField("key", key, Field.Store.YES));
+        document.add(new StringField(PROJECT_PERMISSIONS_FIELD, project(projectId).bytes(), Field.Store.NO));
+        document.add(new StringField(ISSUE_LEVEL_PERMISSIONS_FIELD, level(securityLevel).bytes(), Field.Store.NO));
+        document.add(new StringField(ISSUE_LEVEL_PERMISSIONS_FIELD, levelInProject(securityLevel, projectId).bytes(), Field.Store.NO));
+        return document;
+    }
+
+    private static Term level(final Long securityLevel) {
+        return new Term(ISSUE_LEVEL_PERMISSIONS_FIELD, SecurityIndexingUtils.generateIssueLevelPermissionContents(securityLevel));
+    }
+
+    private static Term levelInProject(final Long securityLevel, final Long projectId) {
+        return new Term(ISSUE_LEVEL_PERMISSIONS_FIELD, SecurityIndexingUtils.generateIssueLevelPermissionContents(securityLevel, projectId));
+    }
+
+    private static Term project(final Long projectId) {
+        return new Term(PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateProjectPermissionFieldContents(projectId));
+    }
+}
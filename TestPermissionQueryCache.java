@@ -0,0 +1,96 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.issue.search.SearchProviderFactory;
+import com.atlassian.jira.security.PermissionVersions;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import com.atlassian.jira.util.thread.JiraThreadLocalUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionQueryCache {
+    private final ApplicationUser fred = new MockApplicationUser("fred");
+    private final ApplicationUser admin = new MockApplicationUser("admin");
+    private final AtomicInteger builds = new AtomicInteger();
+    private final Supplier<Query> builder = () -> {
+        builds.incrementAndGet();
+        return new TermQuery(new Term("projpermissions", "p#10000"));
+    };
+
+    private final PermissionSearchMetrics metrics = new PermissionSearchMetrics(mock(SearchProviderFactory.class), mock(JiraThreadLocalUtil.class));
+    private final PermissionVersions versions = new PermissionVersions(mock(EventPublisher.class));
+    private PermissionQueryCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new PermissionQueryCache(versions, 1000, metrics);
+    }
+
+    @Test
+    public void shouldBuildQueryOncePerUser() {
+        final Query first = cache.getPermissionQuery(fred, builder);
+
+        assertSame(first, cache.getPermissionQuery(fred, builder));
+        cache.getPermissionQuery(admin, builder);
+        cache.getPermissionQuery(null, builder);
+        cache.getPermissionQuery(null, builder);
+        assertEquals(3, builds.get());
+        assertEquals(5, metrics.getPermissionQueryCount());
+        assertEquals(3, metrics.getPermissionQueryBuildCount());
+        assertEquals(2, metrics.getPermissionQueryCacheHitCount());
+    }
+
+    @Test
+    public void configurationChangeShouldInvalidateAllUsers() {
+        cache.getPermissionQuery(fred, builder);
+        cache.getPermissionQuery(admin, builder);
+
+        versions.onClearCache(ClearCacheEvent.INSTANCE);
+
+        assertEquals(0, cache.size());
+        cache.getPermissionQuery(fred, builder);
+        assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void queryBuiltDuringInvalidationShouldNotBeServed() {
+        cache.getPermissionQuery(fred, () -> {
+            versions.invalidateAll();
+            return builder.get();
+        });
+
+        cache.getPermissionQuery(fred, builder);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void clausesShouldBeCountedThroughNestedQueries() {
+        final Query query = new ConstantScoreQuery(new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("projpermissions", "p#1")), BooleanClause.Occur.SHOULD)
+                .add(new BooleanQuery.Builder()
+                        .add(new TermQuery(new Term("projpermissions", "p#2")), BooleanClause.Occur.SHOULD)
+                        .add(new TermQuery(new Term("projpermissions", "p#3")), BooleanClause.Occur.SHOULD)
+                        .build(), BooleanClause.Occur.SHOULD)
+                .build());
+
+        assertEquals(3, PermissionQueryCache.countClauses(query));
+    }
+}
@@ -0,0 +1,128 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.jira.issue.index.SecurityIndexingUtils;
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionQueryEngine {
+    private static final Collection<Term> NO_LEVEL = ImmutableList.of(level(-1L));
+    private static final Collection<Term> ALL_LEVELS = ImmutableList.of(level(-1L), level(1L));
+
+    private final PermissionBitSetCache bitSetCache = new PermissionBitSetCache();
+    private Directory directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+            for (long issue = 0; issue < 100; issue++) {
+                final long projectId = 10000L + issue % 10;
+                // every third issue is restricted to level 1, the others have no security level
+                final long securityLevel = issue % 3 == 0 ? 1L : -1L;
+                final Document document = new Document();
+                document.add(new StringField(PROJECT_PERMISSIONS_FIELD, project(projectId).bytes(), Field.Store.NO));
+                document.add(new StringField(PROJECT_PERMISSIONS_FIELD, assignee(projectId, "user" + issue % 7).bytes(), Field.Store.NO));
+                document.add(new StringField(ISSUE_LEVEL_PERMISSIONS_FIELD, level(securityLevel).bytes(), Field.Store.NO));
+                writer.addDocument(document);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        directory.close();
+    }
+
+    @Test
+    public void enginesShouldMatchTheSameIssues() throws IOException {
+        final Collection<Term> sharedTerms = ImmutableList.of(project(10001L), project(10002L), project(10003L));
+        final Collection<Term> userTerms = ImmutableList.of(assignee(10004L, "user3"), assignee(10005L, "user3"), assignee(10001L, "user3"));
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            assertEquals(30, count(searcher, PermissionQueryEngine.BIT_SETS, sharedTerms, ImmutableList.of(), ALL_LEVELS));
+            for (final PermissionQueryEngine engine : PermissionQueryEngine.values()) {
+                for (final Collection<Term> levelTerms : ImmutableList.of(ALL_LEVELS, NO_LEVEL)) {
+                    assertEquals(engine.name(), count(searcher, PermissionQueryEngine.TERMS, sharedTerms, userTerms, levelTerms),
+                            count(searcher, engine, sharedTerms, userTerms, levelTerms));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void issueWithProjectGrantButNoLevelGrantShouldNotMatch() throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            for (final PermissionQueryEngine engine : PermissionQueryEngine.values()) {
+                // issues 21, 51 and 81 of the project are restricted to level 1
+                assertEquals(engine.name(), 10, count(searcher, engine, ImmutableList.of(project(10001L)), ImmutableList.of(), ALL_LEVELS));
+                assertEquals(engine.name(), 7, count(searcher, engine, ImmutableList.of(project(10001L)), ImmutableList.of(), NO_LEVEL));
+                // a level grant doesn't make issues of projects without a grant visible
+                assertEquals(engine.name(), 0, count(searcher, engine, ImmutableList.of(), ImmutableList.of(), ALL_LEVELS));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contentsOfTheWrongFieldShouldBeRejected() {
+        PermissionQueryEngine.TERMS.newQuery(ImmutableList.of(project(10001L), level(1L)), ImmutableList.of(), NO_LEVEL, ImmutableList.of(), bitSetCache);
+    }
+
+    @Test
+    public void bitSetEngineShouldNotBeLimitedByTheNumberOfUserContents() throws IOException {
+        final ImmutableList.Builder<Term> userTerms = ImmutableList.builder();
+        for (int group = 0; group < BooleanQuery.getMaxClauseCount() + 1; group++) {
+            userTerms.add(assignee(10004L, "user" + group));
+        }
+
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+
+            assertEquals(20, count(searcher, PermissionQueryEngine.BIT_SETS, ImmutableList.of(project(10001L)), userTerms.build(), ALL_LEVELS));
+        }
+    }
+
+    private int count(final IndexSearcher searcher, final PermissionQueryEngine engine, final Collection<Term> sharedTerms,
+                      final Collection<Term> userTerms, final Collection<Term> levelTerms) throws IOException {
+        return searcher.count(engine.newQuery(sharedTerms, userTerms, levelTerms, ImmutableList.of(), bitSetCache));
+    }
+
+    private static Term project(final long projectId) {
+        return new Term(PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateProjectPermissionFieldContents(projectId));
+    }
+
+    private static Term assignee(final long projectId, final String user) {
+        return new Term(PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateProjectPermissionFieldContents(projectId, "issue_assignee", user));
+    }
+
+    private static Term level(final long securityLevel) {
+        return new Term(ISSUE_LEVEL_PERMISSIONS_FIELD, SecurityIndexingUtils.generateIssueLevelPermissionContents(securityLevel));
+    }
+}
@@ -0,0 +1,86 @@
+package com.atlassian.jira.issue.search.parameters.lucene;
+
+import com.atlassian.jira.issue.index.SecurityIndexingUtils;
+import com.atlassian.jira.issue.search.SearchProviderFactory;
+import com.atlassian.jira.util.thread.JiraThreadLocalUtil;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionSearchMetrics {
+    private final SearchProviderFactory searchProviderFactory = mock(SearchProviderFactory.class);
+    private final JiraThreadLocalUtil jiraThreadLocalUtil = mock(JiraThreadLocalUtil.class);
+    private final PermissionSearchMetrics metrics = new PermissionSearchMetrics(searchProviderFactory, jiraThreadLocalUtil);
+
+    @Test
+    public void termStatisticsShouldBeEmptyUntilCollected() {
+        assertTrue(metrics.getPermissionTermCounts().isEmpty());
+        assertTrue(metrics.getTopPermissionTerms().isEmpty());
+    }
+
+    @Test
+    public void stopShouldUnregisterMBean() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = new ObjectName(PermissionSearchMetrics.OBJECT_NAME);
+
+        metrics.start();
+        assertTrue(mBeanServer.isRegistered(objectName));
+        metrics.stop();
+        assertFalse(mBeanServer.isRegistered(objectName));
+    }
+
+    @Test
+    public void termStatisticsShouldBeCollectedFromTheIssueIndex() throws IOException {
+        try (Directory directory = new RAMDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+                for (int issue = 0; issue < 3; issue++) {
+                    final Document document = new Document();
+                    document.add(new StringField(PROJECT_PERMISSIONS_FIELD,
+                            SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L), Field.Store.NO));
+                    writer.addDocument(document);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                when(searchProviderFactory.getSearcher(SearchProviderFactory.ISSUE_INDEX)).thenReturn(new IndexSearcher(reader));
+
+                metrics.collectPermissionTermStatistics();
+
+                assertThat(metrics.getPermissionTermCounts(), hasEntry("PROJECT", 1L));
+                assertThat(metrics.getTopPermissionTerms(), contains(PROJECT_PERMISSIONS_FIELD + ":p#10000=3"));
+                final InOrder threadLocals = inOrder(jiraThreadLocalUtil, searchProviderFactory);
+                threadLocals.verify(jiraThreadLocalUtil).preCall();
+                threadLocals.verify(searchProviderFactory).getSearcher(SearchProviderFactory.ISSUE_INDEX);
+                threadLocals.verify(jiraThreadLocalUtil).postCall(any(Logger.class));
+            }
+        }
+    }
+}
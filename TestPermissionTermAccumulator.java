@@ -0,0 +1,127 @@
+package com.atlassian.jira.issue.index;
+
+import com.atlassian.jira.issue.MockIssue;
+import com.atlassian.jira.project.MockProject;
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.document.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionTermAccumulator {
+    private MockIssue issue;
+    private Document document;
+
+    @Before
+    public void setUp() {
+        issue = new MockIssue(1L);
+        issue.setProjectObject(new MockProject(10000L));
+        document = new Document();
+    }
+
+    @Test
+    public void shouldProduceTheSameFieldsAsSecurityIndexingUtils() {
+        issue.setSecurityLevelId(20000L);
+        final Document expected = new Document();
+        SecurityIndexingUtils.indexPermissions(expected, issue);
+        SecurityIndexingUtils.indexPermissions(expected, issue, "issue_assignee", "admin");
+        SecurityIndexingUtils.indexPermissions(expected, issue, "customfield_10100", "fred");
+
+        new PermissionTermAccumulator(issue)
+                .addIssuePermissions()
+                .addFieldPermissions("issue_assignee", "admin")
+                .addFieldPermissions("customfield_10100", "fred")
+                .flushTo(document);
+
+        assertThat(values(document, PROJECT_PERMISSIONS_FIELD), contains(values(expected, PROJECT_PERMISSIONS_FIELD).toArray()));
+        assertThat(values(document, ISSUE_LEVEL_PERMISSIONS_FIELD), contains(values(expected, ISSUE_LEVEL_PERMISSIONS_FIELD).toArray()));
+    }
+
+    @Test
+    public void multipleValuesShouldBeEncodedLikeSingleOnes() {
+        issue.setSecurityLevelId(20000L);
+        final Document expected = new Document();
+        new PermissionTermAccumulator(issue)
+                .addFieldPermissions("customfield_10100", "admin")
+                .addFieldPermissions("customfield_10100", "fred")
+                .addFieldPermissions("issue_assignee", "fred")
+                .flushTo(expected);
+
+        new PermissionTermAccumulator(issue)
+                .addFieldPermissions("customfield_10100", ImmutableList.of("admin", "fred"))
+                .addFieldPermissions("issue_assignee", ImmutableList.of("fred"))
+                .addFieldPermissions("issue_author", ImmutableList.of())
+                .flushTo(document);
+
+        assertThat(values(document, PROJECT_PERMISSIONS_FIELD), contains(
+                "p#10000#customfield_10100#admin", "p#10000#customfield_10100#fred", "p#10000#issue_assignee#fred"));
+        assertThat(values(document, ISSUE_LEVEL_PERMISSIONS_FIELD), contains(values(expected, ISSUE_LEVEL_PERMISSIONS_FIELD).toArray()));
+    }
+
+    @Test
+    public void shouldDeduplicateRepeatedValues() {
+        new PermissionTermAccumulator(issue)
+                .addIssuePermissions()
+                .addFieldPermissions("customfield_10100", "admin")
+                .addFieldPermissions("customfield_10100", "admin")
+                .addIssuePermissions()
+                .flushTo(document);
+
+        assertThat(values(document, PROJECT_PERMISSIONS_FIELD), contains("p#10000", "p#10000#customfield_10100#admin"));
+        assertThat(values(document, ISSUE_LEVEL_PERMISSIONS_FIELD), contains("s#-1"));
+    }
+
+    @Test
+    public void shouldNotAddAnythingBeforeFlush() {
+        final PermissionTermAccumulator accumulator = new PermissionTermAccumulator(issue).addFieldPermissions("issue_author", "admin");
+
+        assertThat(document.getFields(), empty());
+
+        accumulator.flushTo(document);
+        assertThat(values(document, PROJECT_PERMISSIONS_FIELD), contains("p#10000#issue_author#admin"));
+    }
+
+    @Test
+    public void issuesOfABatchShouldGetTheSameFieldsAsSingleIssues() {
+        final MockIssue secured = new MockIssue(2L);
+        secured.setProjectObject(new MockProject(10000L));
+        secured.setSecurityLevelId(20000L);
+        final MockIssue otherProject = new MockIssue(3L);
+        otherProject.setProjectObject(new MockProject(10001L));
+        final PermissionTermAccumulator.Batch batch = new PermissionTermAccumulator.Batch();
+
+        for (final MockIssue batchIssue : ImmutableList.of(issue, secured, otherProject, issue)) {
+            final Document expected = new Document();
+            new PermissionTermAccumulator(batchIssue)
+                    .addIssuePermissions()
+                    .addFieldPermissions("issue_assignee", ImmutableList.of("admin", "fred"))
+                    .flushTo(expected);
+            final Document batched = new Document();
+            batch.accumulatorFor(batchIssue)
+                    .addIssuePermissions()
+                    .addFieldPermissions("issue_assignee", ImmutableList.of("admin", "fred"))
+                    .flushTo(batched);
+
+            assertThat(values(batched, PROJECT_PERMISSIONS_FIELD), contains(values(expected, PROJECT_PERMISSIONS_FIELD).toArray()));
+            assertThat(values(batched, ISSUE_LEVEL_PERMISSIONS_FIELD), contains(values(expected, ISSUE_LEVEL_PERMISSIONS_FIELD).toArray()));
+        }
+    }
+
+    private static List<String> values(final Document document, final String fieldName) {
+        return Arrays.stream(document.getFields(fieldName))
+                .map(field -> field.binaryValue() == null ? field.stringValue() : field.binaryValue().utf8ToString())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,76 @@
+package com.atlassian.jira.issue.index;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.ISSUE_LEVEL_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.ContentType.PROJECT;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.ContentType.PROJECT_FIELD;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.ContentType.SECURITY_LEVEL;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.ContentType.SECURITY_LEVEL_FIELD;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.ContentType.SECURITY_LEVEL_PROJECT;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.TermFormat.COMPACT;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.TermFormat.TEXT;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionTermStatistics {
+    @Test
+    public void contentTypesShouldBeRecognisedInBothFormats() {
+        for (final SecurityIndexingUtils.TermFormat format : SecurityIndexingUtils.TermFormat.values()) {
+            assertEquals(PROJECT, SecurityIndexingUtils.getContentType(SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L)));
+            assertEquals(PROJECT_FIELD, SecurityIndexingUtils.getContentType(SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L, "issue_assignee", "p#1")));
+            assertEquals(SECURITY_LEVEL, SecurityIndexingUtils.getContentType(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, -1L)));
+            assertEquals(SECURITY_LEVEL_PROJECT, SecurityIndexingUtils.getContentType(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, 1L, 10000L)));
+            assertEquals(SECURITY_LEVEL_FIELD, SecurityIndexingUtils.getContentType(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, 1L, "issue_author", "p#admin")));
+        }
+    }
+
+    @Test
+    public void shouldCountTermsAndFindTheLongestPostingLists() throws IOException {
+        try (Directory directory = new RAMDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+                for (int issue = 0; issue < 10; issue++) {
+                    final Document document = new Document();
+                    add(document, PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateProjectPermissionFieldContents(TEXT, issue < 7 ? 10000L : 10001L));
+                    add(document, PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateProjectPermissionFieldContents(TEXT, 10000L, "issue_assignee", "user" + issue));
+                    add(document, ISSUE_LEVEL_PERMISSIONS_FIELD, SecurityIndexingUtils.generateIssueLevelPermissionContents(COMPACT, -1L));
+                    writer.addDocument(document);
+                }
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                final PermissionTermStatistics statistics = PermissionTermStatistics.collect(reader, 2);
+
+                assertThat(statistics.getTermCounts(), hasEntry(PROJECT, 2L));
+                assertThat(statistics.getTermCounts(), hasEntry(PROJECT_FIELD, 10L));
+                assertThat(statistics.getTermCounts(), hasEntry(SECURITY_LEVEL, 1L));
+                assertThat(statistics.getTopTerms().stream().map(PermissionTermStatistics.TermFrequency::getDocFreq).collect(toList()), contains(10, 7));
+                assertEquals(ISSUE_LEVEL_PERMISSIONS_FIELD, statistics.getTopTerms().get(0).getField());
+                assertEquals("p#10000", statistics.getTopTerms().get(1).getTerm());
+            }
+        }
+    }
+
+    private static void add(final Document document, final String field, final BytesRef content) {
+        document.add(new StringField(field, content, Field.Store.NO));
+    }
+}
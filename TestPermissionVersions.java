@@ -0,0 +1,153 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.crowd.event.group.GroupDeletedEvent;
+import com.atlassian.crowd.event.group.GroupMembershipDeletedEvent;
+import com.atlassian.crowd.event.user.UserDeletedEvent;
+import com.atlassian.crowd.event.user.UserUpdatedEvent;
+import com.atlassian.crowd.model.membership.MembershipType;
+import com.atlassian.crowd.model.user.User;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.event.ProjectUpdatedEvent;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.security.plugin.ProjectPermissionOverrideModuleDescriptor;
+import com.atlassian.plugin.ModuleDescriptor;
+import com.atlassian.plugin.event.events.PluginModuleDisabledEvent;
+import com.atlassian.plugin.event.events.PluginModuleEnabledEvent;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestPermissionVersions {
+    private final PermissionVersions versions = new PermissionVersions(mock(EventPublisher.class));
+
+    @Test
+    public void versionShouldStayCurrentUntilChanged() {
+        final PermissionVersions.Version version = versions.get("fred");
+
+        assertEquals(version, versions.get("Fred"));
+        assertTrue(versions.isCurrent(version, "FRED"));
+        assertTrue(versions.isCurrent(versions.get(null), null));
+    }
+
+    @Test
+    public void configurationChangeShouldMakeAllVersionsStale() {
+        final PermissionVersions.Version fred = versions.get("fred");
+        final PermissionVersions.Version anonymous = versions.get(null);
+
+        versions.onClearCache(ClearCacheEvent.INSTANCE);
+
+        assertFalse(versions.isCurrent(fred, "fred"));
+        assertFalse(versions.isCurrent(anonymous, null));
+        assertTrue(versions.get("fred").isAfter(fred));
+    }
+
+    @Test
+    public void userMembershipChangeShouldMakeVersionOfThatUserStale() {
+        final PermissionVersions.Version fred = versions.get("fred");
+
+        versions.onGroupMembershipDeleted(membershipDeleted(MembershipType.GROUP_USER, "FRED"));
+
+        assertFalse(versions.isCurrent(fred, "fred"));
+        assertTrue(versions.get("fred").isAfter(fred));
+    }
+
+    @Test
+    public void nestedGroupMembershipChangeShouldMakeAllVersionsStale() {
+        final PermissionVersions.Version admin = versions.get("admin");
+
+        versions.onGroupMembershipDeleted(membershipDeleted(MembershipType.GROUP_GROUP, "jira-developers"));
+
+        assertFalse(versions.isCurrent(admin, "admin"));
+    }
+
+    @Test
+    public void deletedGroupShouldMakeAllVersionsStale() {
+        final PermissionVersions.Version fred = versions.get("fred");
+
+        versions.onGroupDeleted(mock(GroupDeletedEvent.class));
+
+        assertFalse(versions.isCurrent(fred, "fred"));
+    }
+
+    @Test
+    public void updatedOrDeletedUserShouldMakeVersionOfThatUserStale() {
+        final PermissionVersions.Version fred = versions.get("fred");
+        final User deactivated = mock(User.class);
+        when(deactivated.getName()).thenReturn("Fred");
+        final UserUpdatedEvent updated = mock(UserUpdatedEvent.class);
+        when(updated.getUser()).thenReturn(deactivated);
+
+        versions.onUserUpdated(updated);
+        assertFalse(versions.isCurrent(fred, "fred"));
+
+        final PermissionVersions.Version afterUpdate = versions.get("fred");
+        final UserDeletedEvent deleted = mock(UserDeletedEvent.class);
+        when(deleted.getUsername()).thenReturn("fred");
+        versions.onUserDeleted(deleted);
+        assertFalse(versions.isCurrent(afterUpdate, "fred"));
+    }
+
+    @Test
+    public void onlyPermissionOverrideModulesShouldMakeVersionsStale() {
+        final PermissionVersions.Version fred = versions.get("fred");
+
+        versions.onPluginModuleEnabled(new PluginModuleEnabledEvent(mock(ModuleDescriptor.class)));
+        versions.onPluginModuleDisabled(new PluginModuleDisabledEvent(mock(ModuleDescriptor.class), false));
+        assertTrue(versions.isCurrent(fred, "fred"));
+
+        versions.onPluginModuleEnabled(new PluginModuleEnabledEvent(mock(ProjectPermissionOverrideModuleDescriptor.class)));
+        assertFalse(versions.isCurrent(fred, "fred"));
+    }
+
+    @Test
+    public void onlyProjectLeadChangeShouldMakeVersionsStale() {
+        final PermissionVersions.Version fred = versions.get("fred");
+
+        versions.onProjectUpdated(projectUpdated("fred", "fred"));
+        assertTrue(versions.isCurrent(fred, "fred"));
+
+        versions.onProjectUpdated(projectUpdated("fred", "admin"));
+        assertFalse(versions.isCurrent(fred, "fred"));
+    }
+
+    @Test
+    public void listenersShouldBeToldWhatBecameStale() {
+        final PermissionVersions.Listener listener = mock(PermissionVersions.Listener.class);
+        versions.addListener(listener);
+
+        versions.invalidateAll();
+        versions.onGroupMembershipDeleted(membershipDeleted(MembershipType.GROUP_USER, "Fred"));
+
+        verify(listener).allInvalidated();
+        verify(listener).userInvalidated("fred");
+        verifyNoMoreInteractions(listener);
+    }
+
+    private static ProjectUpdatedEvent projectUpdated(final String oldLeadUserKey, final String leadUserKey) {
+        final ProjectUpdatedEvent event = mock(ProjectUpdatedEvent.class);
+        final Project oldProject = mock(Project.class);
+        when(oldProject.getLeadUserKey()).thenReturn(oldLeadUserKey);
+        final Project project = mock(Project.class);
+        when(project.getLeadUserKey()).thenReturn(leadUserKey);
+        when(event.getOldProject()).thenReturn(oldProject);
+        when(event.getProject()).thenReturn(project);
+        return event;
+    }
+
+    private static GroupMembershipDeletedEvent membershipDeleted(final MembershipType membershipType, final String entityName) {
+        final GroupMembershipDeletedEvent event = mock(GroupMembershipDeletedEvent.class);
+        when(event.getMembershipType()).thenReturn(membershipType);
+        when(event.getEntityName()).thenReturn(entityName);
+        return event;
+    }
+}
@@ -0,0 +1,129 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.jira.project.MockProject;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.atlassian.jira.permission.ProjectPermissions.EDIT_ISSUES;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.ABSTAIN;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.DENY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 9.12
+ */
+public class TestProjectPermissionOverrideCircuitBreaker {
+    private static final String MODULE_KEY = "com.example:slow-override";
+    private static final ApplicationUser BRAD = new MockApplicationUser("brad_the_odlaw");
+    private static final Project PROJECT = new MockProject(10000L);
+
+    private final AtomicLong now = new AtomicLong();
+    private final ProjectPermissionOverrideCircuitBreaker breaker = new ProjectPermissionOverrideCircuitBreaker(100, 3, 60, now::get);
+
+    @Test
+    public void fastOverrideShouldBeCalledEveryTime() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(DENY, breaker.hasPermission(MODULE_KEY, MockProjectPermissionOverride.denying(EDIT_ISSUES), EDIT_ISSUES, PROJECT, BRAD));
+        }
+
+        final ProjectPermissionOverrideCircuitBreaker.OverrideStatus status = breaker.getStatuses().get(0);
+        assertFalse(status.isOpen());
+        assertEquals(10, status.getCalls());
+        assertEquals(10L, (long) status.getLatencyHistogram().get(0));
+    }
+
+    @Test
+    public void failingOverrideShouldAbstain() {
+        assertEquals(ABSTAIN, breaker.hasPermission(MODULE_KEY, new ThrowingOverride(), EDIT_ISSUES, PROJECT, BRAD));
+        assertEquals(1, breaker.getStatuses().get(0).getFailures());
+    }
+
+    @Test
+    public void slowOverrideShouldTripAndRecover() {
+        final SlowOverride override = new SlowOverride(200);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(DENY, breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD));
+        }
+
+        assertEquals(ABSTAIN, breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD));
+        assertEquals(3, override.calls.get());
+        assertTrue(breaker.getStatuses().get(0).isOpen());
+        assertEquals(1, breaker.getStatuses().get(0).getShortCircuits());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        override.millis = 1;
+        assertEquals(DENY, breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD));
+        assertEquals(DENY, breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD));
+        assertEquals(5, override.calls.get());
+        assertFalse(breaker.getStatuses().get(0).isOpen());
+    }
+
+    @Test
+    public void failedProbeShouldKeepBreakerOpen() {
+        final SlowOverride override = new SlowOverride(200);
+        for (int i = 0; i < 3; i++) {
+            breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD);
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD);
+        breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD);
+
+        assertEquals(4, override.calls.get());
+        assertTrue(breaker.getStatuses().get(0).isOpen());
+    }
+
+    @Test
+    public void resetShouldCloseBreaker() {
+        final SlowOverride override = new SlowOverride(200);
+        for (int i = 0; i < 3; i++) {
+            breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD);
+        }
+
+        breaker.reset(MODULE_KEY);
+
+        breaker.hasPermission(MODULE_KEY, override, EDIT_ISSUES, PROJECT, BRAD);
+        assertEquals(4, override.calls.get());
+    }
+
+    private class SlowOverride implements ProjectPermissionOverride {
+        private final AtomicInteger calls = new AtomicInteger();
+        private long millis;
+
+        private SlowOverride(final long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public Decision hasPermission(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+            calls.incrementAndGet();
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+            return Decision.DENY;
+        }
+
+        @Override
+        public Reason getReason(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+            return null;
+        }
+    }
+
+    private static class ThrowingOverride implements ProjectPermissionOverride {
+        @Override
+        public Decision hasPermission(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+            throw new IllegalStateException("remote service unavailable");
+        }
+
+        @Override
+        public Reason getReason(final ProjectPermissionKey projectPermissionKey, final Project project, final ApplicationUser applicationUser) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.atlassian.jira.security.plugin;
+
+import com.atlassian.cache.CacheLoader;
+import com.atlassian.jira.cache.request.RequestCache;
+import com.atlassian.jira.cache.request.RequestCacheFactory;
+import com.atlassian.jira.project.MockProject;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.atlassian.jira.permission.ProjectPermissions.BROWSE_PROJECTS;
+import static com.atlassian.jira.permission.ProjectPermissions.EDIT_ISSUES;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.ABSTAIN;
+import static com.atlassian.jira.security.plugin.ProjectPermissionOverride.Decision.DENY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestProjectPermissionOverrideDecisionCache {
+    private static final String MODULE = "com.example.overrides:cant-edit";
+    private static final Project PROJECT = new MockProject(10000L);
+    private static final ApplicationUser FRED = new MockApplicationUser("fred");
+
+    @Test
+    public void overrideShouldBeAskedOncePerRequest() {
+        final ProjectPermissionOverride override = override();
+        final ProjectPermissionOverrideDecisionCache cache = new ProjectPermissionOverrideDecisionCache(requestCacheFactory(true));
+
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, new MockProject(10000L), new MockApplicationUser("fred")));
+
+        verify(override).hasPermission(EDIT_ISSUES, PROJECT, FRED);
+        assertEquals(1, cache.getInvocationCount());
+        assertEquals(1, cache.getTotalInvocationCount());
+    }
+
+    @Test
+    public void decisionsShouldBeKeptApartByModulePermissionProjectAndUser() {
+        final ProjectPermissionOverride override = override();
+        final ProjectPermissionOverrideDecisionCache cache = new ProjectPermissionOverrideDecisionCache(requestCacheFactory(true));
+        final Project otherProject = new MockProject(10001L);
+        final ApplicationUser otherUser = new MockApplicationUser("barney");
+
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+        assertEquals(DENY, cache.hasPermission("com.example.overrides:other", override, EDIT_ISSUES, PROJECT, FRED));
+        assertEquals(ABSTAIN, cache.hasPermission(MODULE, override, BROWSE_PROJECTS, PROJECT, FRED));
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, otherProject, FRED));
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, otherUser));
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, null));
+
+        verify(override, times(2)).hasPermission(EDIT_ISSUES, PROJECT, FRED);
+        verify(override).hasPermission(BROWSE_PROJECTS, PROJECT, FRED);
+        verify(override).hasPermission(EDIT_ISSUES, otherProject, FRED);
+        verify(override).hasPermission(EDIT_ISSUES, PROJECT, otherUser);
+        verify(override).hasPermission(EDIT_ISSUES, PROJECT, null);
+        assertEquals(6, cache.getInvocationCount());
+    }
+
+    @Test
+    public void everyCheckOutsideOfRequestShouldReachOverride() {
+        final ProjectPermissionOverride override = override();
+        final ProjectPermissionOverrideDecisionCache cache = new ProjectPermissionOverrideDecisionCache(requestCacheFactory(false));
+
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+
+        verify(override, times(3)).hasPermission(EDIT_ISSUES, PROJECT, FRED);
+        assertEquals(0, cache.getInvocationCount());
+        assertEquals(3, cache.getTotalInvocationCount());
+    }
+
+    @Test
+    public void explainableOverrideShouldExplainMemoizedDecision() {
+        final ExplainableProjectPermissionOverride override = mock(ExplainableProjectPermissionOverride.class);
+        final ProjectPermissionOverride.Reason reason = mock(ProjectPermissionOverride.Reason.class);
+        when(override.hasPermission(EDIT_ISSUES, PROJECT, FRED)).thenReturn(DENY);
+        when(override.explain(DENY, EDIT_ISSUES, PROJECT, FRED)).thenReturn(reason);
+        final ProjectPermissionOverrideDecisionCache cache = new ProjectPermissionOverrideDecisionCache(requestCacheFactory(true));
+
+        assertEquals(DENY, cache.hasPermission(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+        assertSame(reason, cache.getReason(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+
+        verify(override).hasPermission(EDIT_ISSUES, PROJECT, FRED);
+        verify(override, never()).getReason(any(), any(), any());
+        assertEquals(1, cache.getInvocationCount());
+    }
+
+    @Test
+    public void otherOverridesShouldBeAskedForReason() {
+        final ProjectPermissionOverride override = override();
+        final ProjectPermissionOverride.Reason reason = mock(ProjectPermissionOverride.Reason.class);
+        when(override.getReason(EDIT_ISSUES, PROJECT, FRED)).thenReturn(reason);
+        final ProjectPermissionOverrideDecisionCache cache = new ProjectPermissionOverrideDecisionCache(requestCacheFactory(true));
+
+        assertSame(reason, cache.getReason(MODULE, override, EDIT_ISSUES, PROJECT, FRED));
+
+        assertEquals(1, cache.getInvocationCount());
+    }
+
+    private static ProjectPermissionOverride override() {
+        final ProjectPermissionOverride override = mock(ProjectPermissionOverride.class);
+        when(override.hasPermission(any(), any(), any())).thenAnswer(invocation ->
+                EDIT_ISSUES.equals(invocation.getArgument(0)) ? DENY : ABSTAIN);
+        return override;
+    }
+
+    /**
+     * @param inRequest whether the caches behave like in a request, keeping loaded values, or like outside of a
+     *                  request, loading on every call
+     */
+    @SuppressWarnings("unchecked")
+    private static RequestCacheFactory requestCacheFactory(final boolean inRequest) {
+        final RequestCacheFactory requestCacheFactory = mock(RequestCacheFactory.class);
+        when(requestCacheFactory.createRequestCache(anyString(), any())).thenAnswer(invocation -> {
+            final CacheLoader<Object, Object> loader = invocation.getArgument(1);
+            final Map<Object, Object> values = new HashMap<>();
+            final RequestCache<Object, Object> requestCache = mock(RequestCache.class);
+            when(requestCache.get(any())).thenAnswer(get -> inRequest
+                    ? values.computeIfAbsent(get.getArgument(0), loader::load)
+                    : loader.load(get.getArgument(0)));
+            return requestCache;
+        });
+        return requestCacheFactory;
+    }
+}
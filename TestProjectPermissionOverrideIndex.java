@@ -0,0 +1,51 @@
+package com.atlassian.jira.security.plugin;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static com.atlassian.jira.permission.ProjectPermissions.ADD_COMMENTS;
+import static com.atlassian.jira.permission.ProjectPermissions.BROWSE_PROJECTS;
+import static com.atlassian.jira.permission.ProjectPermissions.EDIT_ISSUES;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @since 9.12
+ */
+public class TestProjectPermissionOverrideIndex {
+    private final ProjectPermissionOverride cantEdit = MockProjectPermissionOverride.scopedDenying(EDIT_ISSUES);
+    private final ProjectPermissionOverride cantComment = MockProjectPermissionOverride.scopedDenying(ADD_COMMENTS);
+    private final ProjectPermissionOverride unscoped = MockProjectPermissionOverride.abstaining();
+
+    @Test
+    public void scopedOverridesShouldBeListedOnlyUnderTheirKeys() {
+        final ProjectPermissionOverrideIndex<ProjectPermissionOverride> index =
+                new ProjectPermissionOverrideIndex<>(ImmutableList.of(cantEdit, cantComment), Function.identity());
+
+        assertEquals(ImmutableList.of(cantEdit), index.getOverrides(EDIT_ISSUES));
+        assertEquals(ImmutableList.of(cantComment), index.getOverrides(ADD_COMMENTS));
+        assertEquals(ImmutableList.of(), index.getOverrides(BROWSE_PROJECTS));
+    }
+
+    @Test
+    public void unscopedOverridesShouldBeListedUnderEveryKeyInOriginalOrder() {
+        final ProjectPermissionOverrideIndex<ProjectPermissionOverride> index =
+                new ProjectPermissionOverrideIndex<>(ImmutableList.of(unscoped, cantEdit, cantComment), Function.identity());
+
+        assertEquals(ImmutableList.of(unscoped, cantEdit), index.getOverrides(EDIT_ISSUES));
+        assertEquals(ImmutableList.of(unscoped, cantComment), index.getOverrides(ADD_COMMENTS));
+        assertEquals(ImmutableList.of(unscoped), index.getOverrides(BROWSE_PROJECTS));
+    }
+
+    @Test
+    public void entriesShouldBeIndexedByTheirOverride() {
+        final List<String> moduleKeys = ImmutableList.of("ref:cant-edit", "ref:unscoped");
+        final ProjectPermissionOverrideIndex<String> index =
+                new ProjectPermissionOverrideIndex<>(moduleKeys, key -> key.equals("ref:cant-edit") ? cantEdit : unscoped);
+
+        assertEquals(moduleKeys, index.getOverrides(EDIT_ISSUES));
+        assertEquals(ImmutableList.of("ref:unscoped"), index.getOverrides(BROWSE_PROJECTS));
+    }
+}
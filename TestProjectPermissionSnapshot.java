@@ -0,0 +1,75 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.jira.security.plugin.ProjectPermissionKey;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.atlassian.jira.permission.ProjectPermissions.BROWSE_PROJECTS;
+import static com.atlassian.jira.permission.ProjectPermissions.CREATE_ISSUES;
+import static com.atlassian.jira.permission.ProjectPermissions.EDIT_ISSUES;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 9.12
+ */
+public class TestProjectPermissionSnapshot {
+    private static final List<ProjectPermissionKey> KEYS = ImmutableList.of(BROWSE_PROJECTS, CREATE_ISSUES);
+
+    @Test
+    public void shouldHoldGrantedPermissionsOnly() {
+        final ProjectPermissionSnapshot snapshot = ProjectPermissionSnapshot.builder(KEYS, ImmutableList.of(10000L, 10001L))
+                .grant(BROWSE_PROJECTS, 10000L)
+                .grant(BROWSE_PROJECTS, 10001L)
+                .grant(CREATE_ISSUES, 10001L)
+                .build();
+
+        assertTrue(snapshot.hasPermission(BROWSE_PROJECTS, 10000L));
+        assertTrue(snapshot.hasPermission(BROWSE_PROJECTS, 10001L));
+        assertFalse(snapshot.hasPermission(CREATE_ISSUES, 10000L));
+        assertTrue(snapshot.hasPermission(CREATE_ISSUES, 10001L));
+    }
+
+    @Test
+    public void unknownKeysAndProjectsShouldNotBeCovered() {
+        final ProjectPermissionSnapshot snapshot = ProjectPermissionSnapshot.builder(KEYS, ImmutableList.of(10000L))
+                .grant(BROWSE_PROJECTS, 10000L)
+                .grant(BROWSE_PROJECTS, 10002L)
+                .grant(EDIT_ISSUES, 10000L)
+                .build();
+
+        assertTrue(snapshot.covers(CREATE_ISSUES, 10000L));
+        assertFalse(snapshot.covers(EDIT_ISSUES, 10000L));
+        assertFalse(snapshot.covers(BROWSE_PROJECTS, 10002L));
+        assertFalse(snapshot.hasPermission(BROWSE_PROJECTS, 10002L));
+        assertFalse(snapshot.hasPermission(EDIT_ISSUES, 10000L));
+    }
+
+    @Test
+    public void shouldHoldPermissionsOfManyProjects() {
+        final List<Long> projectIds = new ArrayList<>();
+        for (long id = 10000; id < 13000; id++) {
+            projectIds.add(id);
+        }
+        final ProjectPermissionSnapshot.Builder builder = ProjectPermissionSnapshot.builder(KEYS, projectIds);
+        for (final Long projectId : projectIds) {
+            if (projectId % 3 == 0) {
+                builder.grant(CREATE_ISSUES, projectId);
+            }
+        }
+        final ProjectPermissionSnapshot snapshot = builder.build();
+
+        for (final Long projectId : projectIds) {
+            assertTrue(snapshot.covers(CREATE_ISSUES, projectId));
+            assertFalse(snapshot.hasPermission(BROWSE_PROJECTS, projectId));
+            if (projectId % 3 == 0) {
+                assertTrue(snapshot.hasPermission(CREATE_ISSUES, projectId));
+            } else {
+                assertFalse(snapshot.hasPermission(CREATE_ISSUES, projectId));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ProjectCreatedEvent;
+import com.atlassian.jira.security.plugin.ProjectPermissionOverrideModuleDescriptor;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import com.atlassian.plugin.event.events.PluginModuleDisabledEvent;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.atlassian.jira.permission.ProjectPermissions.BROWSE_PROJECTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @since 9.12
+ */
+public class TestProjectPermissionSnapshotCache {
+    private final ApplicationUser fred = new MockApplicationUser("fred");
+    private final ApplicationUser admin = new MockApplicationUser("admin");
+    private final AtomicInteger builds = new AtomicInteger();
+    private final Supplier<ProjectPermissionSnapshot> builder = () -> {
+        builds.incrementAndGet();
+        return ProjectPermissionSnapshot.builder(ImmutableList.of(BROWSE_PROJECTS), ImmutableList.of(10000L))
+                .grant(BROWSE_PROJECTS, 10000L)
+                .build();
+    };
+
+    private final PermissionVersions versions = new PermissionVersions(mock(EventPublisher.class));
+    private final ProjectPermissionSnapshotCache cache = new ProjectPermissionSnapshotCache(versions, true, 100);
+
+    @Test
+    public void shouldBuildSnapshotOncePerUser() {
+        final ProjectPermissionSnapshot first = cache.getSnapshot(fred, builder);
+
+        assertSame(first, cache.getSnapshot(fred, builder));
+        cache.getSnapshot(admin, builder);
+        cache.getSnapshot(null, builder);
+        cache.getSnapshot(null, builder);
+        assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void projectChangeShouldReplaceAllSnapshots() {
+        final ProjectPermissionSnapshot first = cache.getSnapshot(fred, builder);
+        cache.getSnapshot(admin, builder);
+
+        versions.onProjectCreated(mock(ProjectCreatedEvent.class));
+
+        assertEquals(0, cache.size());
+        assertNotSame(first, cache.getSnapshot(fred, builder));
+        assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void disabledOverrideShouldReplaceAllSnapshots() {
+        cache.getSnapshot(fred, builder);
+
+        versions.onPluginModuleDisabled(new PluginModuleDisabledEvent(mock(ProjectPermissionOverrideModuleDescriptor.class), false));
+
+        cache.getSnapshot(fred, builder);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void numberOfSnapshotsShouldBeBounded() {
+        final ProjectPermissionSnapshotCache small = new ProjectPermissionSnapshotCache(versions, true, 2);
+        for (int i = 0; i < 10; i++) {
+            small.getSnapshot(new MockApplicationUser("user" + i), builder);
+        }
+
+        assertTrue(small.size() <= 2);
+    }
+}
@@ -0,0 +1,74 @@
+package com.atlassian.jira.security.auth;
+
+import com.atlassian.jira.user.ApplicationUser;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestRequiredRoles {
+    @Test
+    public void mergeShouldReuseSetsThatContainEverything() {
+        final Set<String> admin = Collections.singleton("admin");
+        final Set<String> adminAndUser = ImmutableSet.of("admin", "user");
+
+        assertSame(admin, RequiredRoles.merge(admin, Collections.emptySet()));
+        assertSame(admin, RequiredRoles.merge(Collections.emptySet(), admin));
+        assertSame(adminAndUser, RequiredRoles.merge(adminAndUser, admin));
+        assertSame(adminAndUser, RequiredRoles.merge(admin, adminAndUser));
+        assertEquals(adminAndUser, RequiredRoles.merge(admin, Collections.singleton("user")));
+    }
+
+    @Test
+    public void requestWithoutRolesShouldRequireSharedEmptySet() {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        final Authorisation authorisation = new RoleParameterAuthorisation();
+
+        assertSame(Collections.emptySet(), RequiredRoles.of(ImmutableList.of(authorisation, authorisation), request));
+    }
+
+    @Test
+    public void rolesOfAllProvidersShouldBeRequired() {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("role")).thenReturn("admin");
+        final Authorisation sso = mock(Authorisation.class);
+        when(sso.getRequiredRoles(request)).thenReturn(Collections.singleton("sso-user"));
+
+        assertEquals(ImmutableSet.of("admin"), RequiredRoles.of(ImmutableList.of(new RoleParameterAuthorisation()), request));
+        assertEquals(ImmutableSet.of("admin", "sso-user"), RequiredRoles.of(ImmutableList.of(new RoleParameterAuthorisation(), sso), request));
+    }
+
+    /**
+     * Requires the role named by the {@code role} request parameter, if there is one.
+     */
+    private static class RoleParameterAuthorisation implements Authorisation {
+        @Override
+        public Decision authoriseForLogin(@Nonnull final ApplicationUser user, final HttpServletRequest request) {
+            return Decision.ABSTAIN;
+        }
+
+        @Override
+        public Set<String> getRequiredRoles(final HttpServletRequest request) {
+            final String role = request.getParameter("role");
+            return role == null ? Collections.emptySet() : Collections.singleton(role);
+        }
+
+        @Override
+        public Decision authoriseForRole(@Nullable final ApplicationUser user, final HttpServletRequest request, final String role) {
+            return Decision.ABSTAIN;
+        }
+    }
+}
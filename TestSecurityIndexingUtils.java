@@ -0,0 +1,219 @@
+package com.atlassian.jira.issue.index;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.atlassian.jira.issue.index.DocumentConstants.PROJECT_PERMISSIONS_FIELD;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.TermFormat.COMPACT;
+import static com.atlassian.jira.issue.index.SecurityIndexingUtils.TermFormat.TEXT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 9.12
+ */
+public class TestSecurityIndexingUtils {
+    private static final Long[] IDS = {null, -1L, 0L, 7L, 10L, 10000L, 123456789L, Long.MAX_VALUE, Long.MIN_VALUE};
+    private static final String[] VALUES = {null, "", "admin", "jira-users", "has#delimiter", "élève", "亀", "😀", "\uD800"};
+
+    @Test
+    public void projectPermissionContentsShouldMatchStringConcatenation() {
+        for (final Long projectId : IDS) {
+            assertEquals(new BytesRef("p#" + projectId), SecurityIndexingUtils.generateProjectPermissionFieldContents(projectId));
+            for (final String value : VALUES) {
+                assertEquals(new BytesRef("p#" + projectId + "#customfield_10000#" + value),
+                        SecurityIndexingUtils.generateProjectPermissionFieldContents(projectId, "customfield_10000", value));
+            }
+        }
+    }
+
+    @Test
+    public void issueLevelPermissionContentsShouldMatchStringConcatenation() {
+        for (final Long securityLevel : IDS) {
+            assertEquals(new BytesRef("s#" + securityLevel), SecurityIndexingUtils.generateIssueLevelPermissionContents(securityLevel));
+            for (final Long projectId : IDS) {
+                assertEquals(new BytesRef("s#" + securityLevel + "#p#" + projectId),
+                        SecurityIndexingUtils.generateIssueLevelPermissionContents(securityLevel, projectId));
+            }
+            for (final String value : VALUES) {
+                assertEquals(new BytesRef("s#" + securityLevel + "#issue_assignee#" + value),
+                        SecurityIndexingUtils.generateIssueLevelPermissionContents(securityLevel, "issue_assignee", value));
+            }
+        }
+    }
+
+    @Test
+    public void generatedContentsShouldNotShareTheEncodingBuffer() {
+        final BytesRef first = SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L);
+        final BytesRef second = SecurityIndexingUtils.generateProjectPermissionFieldContents(10001L);
+
+        assertNotSame(first.bytes, second.bytes);
+        assertEquals(new BytesRef("p#10000"), first);
+        assertEquals(new BytesRef("p#10001"), second);
+    }
+
+    @Test
+    public void contentsOfMultipleValuesShouldMatchSingleValueOnes() {
+        final List<String> values = Arrays.asList(VALUES);
+        final List<BytesRef> projectContents = new ArrayList<>();
+        final List<BytesRef> issueLevelContents = new ArrayList<>();
+
+        SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L, "customfield_10000", values, projectContents::add);
+        SecurityIndexingUtils.generateIssueLevelPermissionContents(-1L, "issue_assignee", values, issueLevelContents::add);
+
+        assertEquals(values.size(), projectContents.size());
+        assertEquals(values.size(), issueLevelContents.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L, "customfield_10000", values.get(i)), projectContents.get(i));
+            assertEquals(SecurityIndexingUtils.generateIssueLevelPermissionContents(-1L, "issue_assignee", values.get(i)), issueLevelContents.get(i));
+        }
+    }
+
+    @Test
+    public void contentsOfMultipleValuesShouldMatchSingleValueOnesInEachFormat() {
+        final List<String> values = Arrays.asList("admin", "fred", "亀");
+        for (final SecurityIndexingUtils.TermFormat format : SecurityIndexingUtils.TermFormat.values()) {
+            final List<BytesRef> projectContents = new ArrayList<>();
+            final List<BytesRef> issueLevelContents = new ArrayList<>();
+
+            SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L, "customfield_10000", values, projectContents::add);
+            SecurityIndexingUtils.generateIssueLevelPermissionContents(format, 20000L, "issue_assignee", values, issueLevelContents::add);
+
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L, "customfield_10000", values.get(i)),
+                        projectContents.get(i));
+                assertEquals(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, 20000L, "issue_assignee", values.get(i)),
+                        issueLevelContents.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void consumerOfMultipleValuesMayGenerateOtherContents() {
+        final List<BytesRef> contents = new ArrayList<>();
+
+        SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L, "customfield_10000", Arrays.asList("admin", "fred"), content -> {
+            contents.add(content);
+            contents.add(SecurityIndexingUtils.generateIssueLevelPermissionContents(20000L, "issue_assignee", "other"));
+        });
+
+        assertEquals(SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L, "customfield_10000", "admin"), contents.get(0));
+        assertEquals(SecurityIndexingUtils.generateProjectPermissionFieldContents(10000L, "customfield_10000", "fred"), contents.get(2));
+    }
+
+    @Test
+    public void compactContentsShouldBeShorterThanTextOnes() {
+        final BytesRef text = SecurityIndexingUtils.generateProjectPermissionFieldContents(TEXT, 10000L, "customfield_10100", "admin");
+        final BytesRef compact = SecurityIndexingUtils.generateProjectPermissionFieldContents(COMPACT, 10000L, "customfield_10100", "admin");
+
+        assertEquals(new BytesRef("p#10000#customfield_10100#admin"), text);
+        assertEquals(1 + 3 + 2 + "admin".length(), compact.length);
+    }
+
+    @Test
+    public void nullIdsShouldBeEncodedInEveryFormat() {
+        for (final SecurityIndexingUtils.TermFormat format : SecurityIndexingUtils.TermFormat.values()) {
+            final BytesRef nullProject = SecurityIndexingUtils.generateProjectPermissionFieldContents(format, null, "issue_assignee", "admin");
+            final BytesRef nullLevel = SecurityIndexingUtils.generateIssueLevelPermissionContents(format, null, 10000L);
+
+            assertNotEquals(SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 0L, "issue_assignee", "admin"), nullProject);
+            assertNotEquals(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, 0L, 10000L), nullLevel);
+        }
+        assertEquals(new BytesRef("p#null"), SecurityIndexingUtils.generateProjectPermissionFieldContents(TEXT, null));
+    }
+
+    @Test
+    public void compactContentsShouldNeverClashWithTextOnes() {
+        for (final BytesRef compact : allContents(COMPACT)) {
+            assertTrue(compact.bytes[compact.offset] < '0');
+        }
+    }
+
+    @Test
+    public void compactContentsShouldBeDistinctForDistinctInputs() {
+        final Set<BytesRef> contents = allContents(COMPACT);
+
+        assertEquals(allContents(TEXT).size(), contents.size());
+    }
+
+    @Test
+    public void queryContentsShouldBeInTheIndexingFormatOutsideOfMigration() {
+        assertEquals(SecurityIndexingUtils.getQueryTermFormats().size(),
+                SecurityIndexingUtils.generateProjectPermissionQueryContents(10000L).size());
+        assertTrue(SecurityIndexingUtils.generateIssueLevelPermissionQueryContents(1L, 10000L)
+                .contains(SecurityIndexingUtils.generateIssueLevelPermissionContents(1L, 10000L)));
+    }
+
+    @Test
+    public void queryContentsInAllFormatsShouldMatchDocumentsIndexedInEitherFormat() throws IOException {
+        try (Directory directory = new RAMDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+                writer.addDocument(issue(TEXT, 10000L, "admin"));
+                writer.addDocument(issue(COMPACT, 10000L, "admin"));
+                writer.addDocument(issue(COMPACT, 10001L, "admin"));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                final Set<SecurityIndexingUtils.TermFormat> migration = EnumSet.allOf(SecurityIndexingUtils.TermFormat.class);
+
+                assertEquals(2, searcher.count(new TermInSetQuery(PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateQueryContents(migration,
+                        format -> SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L)))));
+                assertEquals(2, searcher.count(new TermInSetQuery(PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateQueryContents(migration,
+                        format -> SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L, "issue_assignee", "admin")))));
+                assertEquals(1, searcher.count(new TermInSetQuery(PROJECT_PERMISSIONS_FIELD, SecurityIndexingUtils.generateQueryContents(EnumSet.of(TEXT),
+                        format -> SecurityIndexingUtils.generateProjectPermissionFieldContents(format, 10000L)))));
+            }
+        }
+    }
+
+    private static Document issue(final SecurityIndexingUtils.TermFormat format, final Long projectId, final String assignee) {
+        final Document document = new Document();
+        document.add(new StringField(PROJECT_PERMISSIONS_FIELD,
+                SecurityIndexingUtils.generateProjectPermissionFieldContents(format, projectId), Field.Store.NO));
+        document.add(new StringField(PROJECT_PERMISSIONS_FIELD,
+                SecurityIndexingUtils.generateProjectPermissionFieldContents(format, projectId, "issue_assignee", assignee), Field.Store.NO));
+        return document;
+    }
+
+    private static Set<BytesRef> allContents(final SecurityIndexingUtils.TermFormat format) {
+        final String[] fieldNames = {"issue_assignee", "issue_author", "customfield_10", "customfield_010", "customfield_", "reporter"};
+        final String[] values = {"", "admin", "x#admin", "10#admin"};
+        final Long[] ids = {null, -1L, 0L, 3L, 10L, 10000L, Long.MAX_VALUE};
+        final Set<BytesRef> contents = new HashSet<>();
+        for (final Long id : ids) {
+            contents.add(SecurityIndexingUtils.generateProjectPermissionFieldContents(format, id));
+            contents.add(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, id));
+            for (final Long projectId : ids) {
+                contents.add(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, id, projectId));
+            }
+            for (final String fieldName : fieldNames) {
+                for (final String value : values) {
+                    contents.add(SecurityIndexingUtils.generateProjectPermissionFieldContents(format, id, fieldName, value));
+                    contents.add(SecurityIndexingUtils.generateIssueLevelPermissionContents(format, id, fieldName, value));
+                }
+            }
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,147 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.crowd.event.group.GroupMembershipCreatedEvent;
+import com.atlassian.crowd.event.group.GroupMembershipsCreatedEvent;
+import com.atlassian.crowd.model.membership.MembershipType;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.MockApplicationUser;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @since 9.12
+ */
+public class TestUserPermissionCache {
+    private final ApplicationUser fred = new MockApplicationUser("fred");
+    private final ApplicationUser admin = new MockApplicationUser("admin");
+    private final AtomicInteger builds = new AtomicInteger();
+    private final Supplier<String> builder = () -> "value-" + builds.incrementAndGet();
+
+    private final PermissionVersions versions = new PermissionVersions(mock(EventPublisher.class));
+    private final UserPermissionCache<String> cache = new UserPermissionCache<>(versions, 1000, String::length, Duration.ofMinutes(30));
+
+    @Test
+    public void shouldBuildValueOncePerUser() {
+        final String first = cache.get(fred, builder);
+
+        assertSame(first, cache.get(fred, builder));
+        assertSame(first, cache.getIfCurrent(new MockApplicationUser("Fred")));
+        cache.get(admin, builder);
+        cache.get(null, builder);
+        cache.get(null, builder);
+        assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void configurationChangeShouldInvalidateAllUsers() {
+        cache.get(fred, builder);
+        cache.get(admin, builder);
+
+        versions.onClearCache(ClearCacheEvent.INSTANCE);
+
+        assertEquals(0, cache.size());
+        cache.get(fred, builder);
+        assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void valueBuiltDuringInvalidationShouldNotBeServed() {
+        cache.build(fred, () -> {
+            versions.invalidateAll();
+            return builder.get();
+        });
+
+        assertNull(cache.getIfCurrent(fred));
+    }
+
+    @Test
+    public void valueBuiltFromOldMembershipsShouldNotBeServed() {
+        // the user leaves a group after the value started to be built from the old memberships
+        cache.build(fred, () -> {
+            final String value = builder.get();
+            versions.onGroupMembershipCreated(membershipCreated(MembershipType.GROUP_USER, "fred"));
+            return value;
+        });
+
+        assertNull(cache.getIfCurrent(fred));
+        cache.get(fred, builder);
+        cache.get(fred, builder);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void olderValueShouldNotReplaceNewerOne() {
+        final String[] newer = new String[1];
+        cache.build(fred, () -> {
+            // a concurrent build that started later finishes first
+            versions.invalidateAll();
+            newer[0] = cache.build(fred, builder);
+            return builder.get();
+        });
+
+        assertSame(newer[0], cache.getIfCurrent(fred));
+    }
+
+    @Test
+    public void renamedUserShouldNotGetValueOfPreviousOwnerOfUsername() {
+        cache.get(new MockApplicationUser("fred-key", "fred"), builder);
+
+        assertNull(cache.getIfCurrent(new MockApplicationUser("other-key", "fred")));
+    }
+
+    @Test
+    public void userMembershipChangeShouldInvalidateOnlyThatUser() {
+        cache.get(fred, builder);
+        cache.get(admin, builder);
+
+        versions.onGroupMembershipCreated(membershipCreated(MembershipType.GROUP_USER, "Fred"));
+
+        assertEquals(1, cache.size());
+        cache.get(fred, builder);
+        cache.get(admin, builder);
+        assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void bulkMembershipChangeShouldInvalidateOnlyThoseUsers() {
+        cache.get(fred, builder);
+        cache.get(admin, builder);
+        cache.get(null, builder);
+
+        final GroupMembershipsCreatedEvent event = mock(GroupMembershipsCreatedEvent.class);
+        when(event.getMembershipType()).thenReturn(MembershipType.GROUP_USER);
+        when(event.getEntityNames()).thenReturn(Arrays.asList("fred", "admin"));
+        versions.onGroupMembershipsCreated(event);
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void nestedGroupMembershipChangeShouldInvalidateAllUsers() {
+        cache.get(fred, builder);
+        cache.get(admin, builder);
+
+        versions.onGroupMembershipCreated(membershipCreated(MembershipType.GROUP_GROUP, "jira-developers"));
+
+        assertEquals(0, cache.size());
+    }
+
+    private static GroupMembershipCreatedEvent membershipCreated(final MembershipType membershipType, final String entityName) {
+        final GroupMembershipCreatedEvent event = mock(GroupMembershipCreatedEvent.class);
+        when(event.getMembershipType()).thenReturn(membershipType);
+        when(event.getEntityName()).thenReturn(entityName);
+        return event;
+    }
+}
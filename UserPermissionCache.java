@@ -0,0 +1,143 @@
+package com.atlassian.jira.security;
+
+import com.atlassian.annotations.Internal;
+import com.atlassian.jira.user.ApplicationUser;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static com.atlassian.jira.user.ApplicationUsers.getKeyFor;
+import static org.apache.commons.lang3.StringUtils.lowerCase;
+
+/**
+ * Bounded cache of a value computed per user from the permission configuration, kept up to date with
+ * {@link PermissionVersions}.
+ *
+ * Each user has at most one entry, keyed by the lower case username, holding the value, the key of the user it was
+ * computed for and the {@link PermissionVersions.Version} taken before it was computed. An entry is served only to
+ * the same user and only while its version is current, so neither a value computed from configuration or memberships
+ * that changed in the meantime nor a value of a previous owner of a renamed username is ever served. Stale entries are
+ * also dropped eagerly when their version is bumped.
+ *
+ * The cache is weighted by the given weigher and entries not used for a while expire, so users that stopped using
+ * Jira don't hold on to memory.
+ *
+ * @param <V> type of the cached values
+ * @since 9.12
+ */
+@Internal
+public class UserPermissionCache<V> {
+    /**
+     * Cache key of the anonymous user, no real username is empty.
+     */
+    private static final String ANONYMOUS = "";
+
+    private final PermissionVersions versions;
+
+    private final Cache<String, Entry<V>> entries;
+
+    /**
+     * @param versions          Versions of the permission configuration the values are computed from
+     * @param maximumWeight     Maximum total weight of the cached values
+     * @param weigher           Weight of a single value, at least 1
+     * @param expireAfterAccess How long a value is kept after it was last used
+     */
+    public UserPermissionCache(@Nonnull final PermissionVersions versions, final long maximumWeight,
+                               @Nonnull final ToIntFunction<? super V> weigher, @Nonnull final Duration expireAfterAccess) {
+        this.versions = versions;
+        this.entries = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String username, Entry<V> entry) -> weigher.applyAsInt(entry.value))
+                .expireAfterAccess(expireAfterAccess.toNanos(), TimeUnit.NANOSECONDS)
+                .build();
+        versions.addListener(new PermissionVersions.Listener() {
+            @Override
+            public void allInvalidated() {
+                entries.invalidateAll();
+            }
+
+            @Override
+            public void userInvalidated(@Nullable final String lowerCaseUsername) {
+                if (lowerCaseUsername != null) {
+                    entries.invalidate(lowerCaseUsername);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param user The user, {@code null} for anonymous
+     * @return the cached value of the user if it is up to date, {@code null} otherwise
+     */
+    @Nullable
+    public V getIfCurrent(@Nullable final ApplicationUser user) {
+        final Entry<V> cached = entries.getIfPresent(cacheKey(user));
+        if (cached != null && Objects.equals(cached.userKey, getKeyFor(user)) && versions.isCurrent(cached.version, username(user))) {
+            return cached.value;
+        }
+        return null;
+    }
+
+    /**
+     * Computes the value of the user and caches it.
+     *
+     * @param user    The user, {@code null} for anonymous
+     * @param builder Computes the value from the current permission configuration
+     * @return the computed value
+     */
+    @Nonnull
+    public V build(@Nullable final ApplicationUser user, @Nonnull final Supplier<V> builder) {
+        // the version has to be taken before anything the value is computed from is read
+        final PermissionVersions.Version version = versions.get(username(user));
+        final V value = builder.get();
+        entries.asMap().merge(cacheKey(user), new Entry<>(getKeyFor(user), version, value), Entry::newer);
+        return value;
+    }
+
+    /**
+     * Same as {@link #getIfCurrent(ApplicationUser)}, falling back to {@link #build(ApplicationUser, Supplier)}.
+     */
+    @Nonnull
+    public V get(@Nullable final ApplicationUser user, @Nonnull final Supplier<V> builder) {
+        final V cached = getIfCurrent(user);
+        return cached != null ? cached : build(user, builder);
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    private static String username(@Nullable final ApplicationUser user) {
+        return user == null ? null : user.getUsername();
+    }
+
+    private static String cacheKey(@Nullable final ApplicationUser user) {
+        return user == null ? ANONYMOUS : lowerCase(user.getUsername());
+    }
+
+    private static final class Entry<V> {
+        private final String userKey;
+        private final PermissionVersions.Version version;
+        private final V value;
+
+        private Entry(final String userKey, final PermissionVersions.Version version, final V value) {
+            this.userKey = userKey;
+            this.version = version;
+            this.value = value;
+        }
+
+        /**
+         * Keeps the value computed for the later version when two values of the same user are computed concurrently.
+         */
+        private static <V> Entry<V> newer(final Entry<V> previous, final Entry<V> built) {
+            return Objects.equals(previous.userKey, built.userKey) && previous.version.isAfter(built.version) ? previous : built;
+        }
+    }
+}